@@ -0,0 +1,6 @@
+// The plugin overrides and the effective pom are written to a single resource directory
+File metaInfDirectory = new File("target/it/basic-plugin-override/target/classes/META-INF/maven/org.jboss.maven.extension.dependency/basic-plugin-override")
+
+assert( new File(metaInfDirectory, "plugin-overrides.properties").exists() )
+String effectivePom = new File(metaInfDirectory, "effective-pom.xml").text
+assert( ( effectivePom =~ /<targetPath>META-INF\/maven<\/targetPath>/ ).count == 1 )
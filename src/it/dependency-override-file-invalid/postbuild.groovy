@@ -0,0 +1,4 @@
+// The build must fail with the location of the invalid line
+File itDirectory = new File("target/it/dependency-override-file-invalid")
+
+assert( new File(itDirectory, "build.log").text.contains( "overrides.txt:3: expected groupId:artifactId=version" ) )
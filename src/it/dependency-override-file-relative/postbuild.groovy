@@ -0,0 +1,9 @@
+// The overrides come from the file next to the pom given with -f
+File itDirectory = new File("target/it/dependency-override-file-relative/module")
+
+Map overrides = [:]
+new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/dependency-override-file-relative/dependency-overrides.properties").eachLine { line ->
+  int separator = line.indexOf( "=" )
+  overrides.put( line.substring( 0, separator ), line.substring( separator + 1 ) )
+}
+assert( [ "junit:junit" : "4.8.2" ].equals( overrides ) )
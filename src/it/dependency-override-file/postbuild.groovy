@@ -0,0 +1,9 @@
+// The overrides of the file are merged with the command line overrides
+File itDirectory = new File("target/it/dependency-override-file")
+
+Map overrides = [:]
+new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/dependency-override-file/dependency-overrides.properties").eachLine { line ->
+  int separator = line.indexOf( "=" )
+  overrides.put( line.substring( 0, separator ), line.substring( separator + 1 ) )
+}
+assert( [ "junit:junit" : "4.1", "commons-io:commons-io" : "1.4" ].equals( overrides ) )
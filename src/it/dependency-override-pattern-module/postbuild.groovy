@@ -0,0 +1,12 @@
+// A module specific override with an empty version also keeps the patterns away from the dependency
+File itDirectory = new File("target/it/dependency-override-pattern-module")
+
+Map junitVersions = [:]
+for ( String module : [ "align", "no-align" ] )
+{
+  String effectivePom = new File(itDirectory, module + "/target/classes/META-INF/maven/org.jboss.maven.extension.dependency/" + module + "/effective-pom.xml").text
+  ( effectivePom =~ /(?s)<artifactId>junit<\/artifactId>\s*<version>([^<]*)<\/version>/ ).each { match, version ->
+    junitVersions.put( module, version )
+  }
+}
+assert( [ "align" : "4.1", "no-align" : "3.8.2" ].equals( junitVersions ) )
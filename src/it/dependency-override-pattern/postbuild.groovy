@@ -0,0 +1,11 @@
+// The most specific matching pattern is applied to each dependency
+File itDirectory = new File("target/it/dependency-override-pattern")
+
+String effectivePom = new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/dependency-override-pattern/effective-pom.xml").text
+Map versions = [:]
+( effectivePom =~ /(?s)<artifactId>([^<]*)<\/artifactId>\s*<version>([^<]*)<\/version>/ ).each { match, artifactId, version ->
+  versions.put( artifactId, version )
+}
+assert( "4.1".equals( versions.get( "junit" ) ) )
+assert( "2.6".equals( versions.get( "commons-lang" ) ) )
+assert( "1.4".equals( versions.get( "commons-io" ) ) )
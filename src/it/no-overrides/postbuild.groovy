@@ -0,0 +1,11 @@
+
+// Without any override properties the extension must stay inactive and leave no trace in the build
+File itDirectory = new File("target/it/no-overrides")
+
+new File(itDirectory, "build.log").eachLine { line ->
+  assert( !line.contains( "Init Maven Dependency Management Extension" ) )
+}
+
+File metaInfDirectory = new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/no-overrides")
+assert( !new File(metaInfDirectory, "effective-pom.xml").exists() )
+assert( !new File(metaInfDirectory, "dependency-overrides.properties").exists() )
@@ -0,0 +1,12 @@
+package test;
+
+import junit.framework.TestCase;
+
+public class HelloJUnit3
+    extends TestCase
+{
+    public void testHello()
+    {
+        // Just a dummy method to verify that we can compile against JUnit 3
+    }
+}
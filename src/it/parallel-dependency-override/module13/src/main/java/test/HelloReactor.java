@@ -0,0 +1,10 @@
+package test;
+
+public class HelloReactor
+{
+    public static void main (String [] args)
+    {
+        // Only compiles against module1 from the reactor
+        HelloWorldwithJUnit.main( args );
+    }
+}
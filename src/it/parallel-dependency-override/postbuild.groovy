@@ -0,0 +1,52 @@
+// Every module must get the same overrides and effective pom as in a sequential build
+File itDirectory = new File("target/it/parallel-dependency-override")
+List modules = ( 1..16 ).collect { "module" + it }
+List excludedModules = [ "module3", "module7", "module12" ]
+
+File getParallelDir( File itDirectory, String module )
+{
+  return new File(itDirectory, module + "/target/classes/META-INF/maven/org.jboss.maven.extension.dependency/parallel-dependency-override-" + module)
+}
+
+File getSequentialDir( File itDirectory, String module )
+{
+  return new File(itDirectory, module + "/sequential/org.jboss.maven.extension.dependency/parallel-dependency-override-" + module)
+}
+
+Map readOverrides( File dir )
+{
+  Map overrides = [:]
+  new File(dir, "dependency-overrides.properties").eachLine { line ->
+    int separator = line.indexOf( "=" )
+    overrides.put( line.substring( 0, separator ), line.substring( separator + 1 ) )
+  }
+  return overrides
+}
+
+for ( module in modules )
+{
+  File parallelDir = getParallelDir( itDirectory, module )
+  File sequentialDir = getSequentialDir( itDirectory, module )
+
+  // Both builds generated the same files, with the same content
+  List parallelFiles = parallelDir.list().sort()
+  List sequentialFiles = sequentialDir.list().sort()
+  assert( sequentialFiles.equals( parallelFiles ) )
+  for ( String fileName in parallelFiles )
+  {
+    assert( Arrays.equals( new File(sequentialDir, fileName).bytes, new File(parallelDir, fileName).bytes ) ) : module + " " + fileName
+  }
+
+  if ( excludedModules.contains( module ) )
+  {
+    assert( [:].equals( readOverrides( parallelDir ) ) )
+    // Nothing was overridden, so there is no effective pom
+    assert( !new File(parallelDir, "effective-pom.xml").exists() )
+  }
+  else
+  {
+    assert( [ "junit:junit" : "4.1" ].equals( readOverrides( parallelDir ) ) )
+    // The effective poms must refer to module1 with its own version
+    assert( !new File(parallelDir, "effective-pom.xml").text.contains( "<version>9.9</version>" ) )
+  }
+}
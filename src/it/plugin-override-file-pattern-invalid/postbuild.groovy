@@ -0,0 +1,4 @@
+// The build must fail with the location of the pattern
+File itDirectory = new File("target/it/plugin-override-file-pattern-invalid")
+
+assert( new File(itDirectory, "build.log").text.contains( "plugin-overrides.txt:3: override patterns are not supported" ) )
@@ -0,0 +1,4 @@
+// The build must fail rather than ignore the pattern
+File itDirectory = new File("target/it/plugin-override-pattern-invalid")
+
+assert( new File(itDirectory, "build.log").text.contains( "Plugin version override patterns are not supported: pluginVersion:org.apache.maven.plugins:*" ) )
@@ -0,0 +1,9 @@
+// The override of a reactor project must not be applied or recorded
+File itDirectory = new File("target/it/reactor-dependency-override")
+
+Map overrides = [:]
+new File(itDirectory, "module2/target/classes/META-INF/maven/org.jboss.maven.extension.dependency/reactor-dependency-override-module2/dependency-overrides.properties").eachLine { line ->
+  int separator = line.indexOf( "=" )
+  overrides.put( line.substring( 0, separator ), line.substring( separator + 1 ) )
+}
+assert( [ "junit:junit" : "4.1" ].equals( overrides ) )
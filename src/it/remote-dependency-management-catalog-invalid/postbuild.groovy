@@ -0,0 +1,22 @@
+// The damaged catalog must be rejected when it is opened and the remote pom read instead
+File itDirectory = new File("target/it/remote-dependency-management-catalog-invalid")
+
+boolean rejectedCatalog = false
+new File(itDirectory, "build.log").eachLine { line ->
+  if ( line.contains( "Invalid string index in alignment catalog" ) )
+  {
+    rejectedCatalog = true
+  }
+  assert( !line.contains( "Using alignment catalog" ) )
+}
+assert( rejectedCatalog )
+
+Map expected = [ "junit:junit" : "4.1",
+                 "commons-lang:commons-lang" : "2.6" ]
+
+Map overrides = [:]
+new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/remote-dependency-management-catalog-invalid/dependency-overrides.properties").eachLine { line ->
+  int separator = line.indexOf( "=" )
+  overrides.put( line.substring( 0, separator ), line.substring( separator + 1 ) )
+}
+assert( expected.equals( overrides ) )
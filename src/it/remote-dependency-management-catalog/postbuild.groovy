@@ -0,0 +1,23 @@
+
+// The overrides must come from the catalog rather than from the effective model of the remote pom
+File itDirectory = new File("target/it/remote-dependency-management-catalog")
+
+boolean usedCatalog = false
+new File(itDirectory, "build.log").eachLine { line ->
+  if ( line.contains( "Using alignment catalog" ) )
+  {
+    usedCatalog = true
+  }
+  assert( !line.contains( "Building effective model of remote pom: org.jboss.maven.extension.dependency:catalog1:1.0" ) )
+}
+assert( usedCatalog )
+
+Map expected = [ "junit:junit" : "4.1",
+                 "commons-lang:commons-lang" : "2.6" ]
+
+Map overrides = [:]
+new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/remote-dependency-management-catalog/dependency-overrides.properties").eachLine { line ->
+  int separator = line.indexOf( "=" )
+  overrides.put( line.substring( 0, separator ), line.substring( separator + 1 ) )
+}
+assert( expected.equals( overrides ) )
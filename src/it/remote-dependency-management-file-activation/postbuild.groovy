@@ -0,0 +1,12 @@
+// The overrides of a remote pom with a profile activated by a file depend on the file system, so they are not cached
+File itDirectory = new File("target/it/remote-dependency-management-file-activation")
+
+assert( new File(itDirectory, "build.log").text.contains( "Not caching dependency overrides for org.jboss.maven.extension.dependency:profileMgmt2:1.0: a profile of its poms is activated by a file" ) )
+assert( !new File(localRepositoryPath, ".cache/maven-dependency-management-extension/org.jboss.maven.extension.dependency/profileMgmt2/1.0/dependency.cache").exists() )
+
+Map overrides = [:]
+new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/remote-dependency-management-file-activation/dependency-overrides.properties").eachLine { line ->
+  int separator = line.indexOf( "=" )
+  overrides.put( line.substring( 0, separator ), line.substring( separator + 1 ) )
+}
+assert( [ "junit:junit" : "4.1" ].equals( overrides ) )
@@ -0,0 +1,11 @@
+// The cached overrides of the first build must not be used once the imported pom has changed
+File itDirectory = new File("target/it/remote-dependency-management-import-changed")
+
+Map expected = [ "junit:junit" : "4.8.2" ]
+
+Map overrides = [:]
+new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/remote-dependency-management-import-changed/dependency-overrides.properties").eachLine { line ->
+  int separator = line.indexOf( "=" )
+  overrides.put( line.substring( 0, separator ), line.substring( separator + 1 ) )
+}
+assert( expected.equals( overrides ) )
@@ -0,0 +1,45 @@
+// A table kept in memory must only be used by builds resolving poms with the same local and remote repositories
+import org.jboss.maven.extension.dependency.resolver.OverrideTableCache
+import org.sonatype.aether.repository.RemoteRepository
+
+// The cache is package private, so it is only used through dynamic calls
+def memoryCache = Class.forName( "org.jboss.maven.extension.dependency.resolver.OverrideTableMemoryCache" )
+def pomStamp = Class.forName( "org.jboss.maven.extension.dependency.resolver.OverrideTableMemoryCache\$PomStamp" )
+
+File itDirectory = new File("target/it/remote-dependency-management-memory-scope")
+String gav = "org.jboss.maven.extension.dependency:depMgmt1:1.0"
+File pom = new File(localRepositoryPath, "org/jboss/maven/extension/dependency/depMgmt1/1.0/depMgmt1-1.0.pom")
+assert( pom.isFile() )
+
+// Two local repositories holding the same pom
+File[] localRepositories = [ new File(itDirectory, "target/repo-a"), new File(itDirectory, "target/repo-b") ]
+Map lineages = [:]
+for ( File localRepository : localRepositories )
+{
+  File copy = new File(localRepository, "org/jboss/maven/extension/dependency/depMgmt1/1.0/depMgmt1-1.0.pom")
+  copy.parentFile.mkdirs()
+  copy.bytes = pom.bytes
+  lineages.put( localRepository, [ (gav) : pomStamp.create( copy ) ] )
+}
+
+List central = [ new RemoteRepository( "central", "default", "https://repo.maven.apache.org/maven2" ) ]
+List mirror = [ new RemoteRepository( "mirror", "default", "https://mirror.example.org/maven2" ) ]
+String scopeA = memoryCache.getScope( localRepositories[0], false, central )
+String scopeB = memoryCache.getScope( localRepositories[1], false, central )
+String scopeOffline = memoryCache.getScope( localRepositories[0], true, central )
+String scopeMirror = memoryCache.getScope( localRepositories[0], false, mirror )
+
+def cache = memoryCache.getShared( 32, 64 * 1024 * 1024 )
+String kind = OverrideTableCache.DEPENDENCY_OVERRIDES
+cache.put( kind, gav, scopeA, lineages.get( localRepositories[0] ), [:], [ "junit:junit" : "4.1" ] )
+
+Properties properties = new Properties()
+assert( [ "junit:junit" : "4.1" ].equals( cache.get( kind, gav, scopeA, properties, 60000L ) ) )
+assert( cache.get( kind, gav, scopeB, properties, 60000L ) == null )
+assert( cache.get( kind, gav, scopeOffline, properties, 60000L ) == null )
+assert( cache.get( kind, gav, scopeMirror, properties, 60000L ) == null )
+
+// The second local repository gets its own table, checked against its own copy of the pom
+cache.put( kind, gav, scopeB, lineages.get( localRepositories[1] ), [:], [ "junit:junit" : "4.2" ] )
+assert( [ "junit:junit" : "4.1" ].equals( cache.get( kind, gav, scopeA, properties, 60000L ) ) )
+assert( [ "junit:junit" : "4.2" ].equals( cache.get( kind, gav, scopeB, properties, 60000L ) ) )
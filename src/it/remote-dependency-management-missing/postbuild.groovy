@@ -0,0 +1,12 @@
+
+// The missing remote pom must be recorded so that the next build fails without contacting the remote repositories
+File marker = new File("target/local-repo/.cache/maven-dependency-management-extension/org.jboss.maven.extension.dependency/depMgmtMissing/1.0/pom.missing")
+assert( marker.isFile() )
+
+// The marker only applies to builds which search the same repositories
+List repositories = marker.readLines( "UTF-8" )
+assert( !repositories.isEmpty() )
+for ( line in repositories )
+{
+  assert( line ==~ /\S+ \S+:\S+/ )
+}
@@ -0,0 +1,16 @@
+
+// The remote poms are resolved concurrently, but the merged overrides must be
+// the same as resolving them one at a time, with the first pom taking priority
+Map expected = [ "junit:junit" : "4.8.2",
+                 "commons-lang:commons-lang" : "2.5",
+                 "commons-io:commons-io" : "1.4",
+                 "log4j:log4j" : "1.2.16" ]
+
+Map overrides = [:]
+File itDirectory = new File("target/it/remote-dependency-management-priority")
+
+new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/remote-dependency-management-priority/dependency-overrides.properties").eachLine { line ->
+  int separator = line.indexOf( "=" )
+  overrides.put( line.substring( 0, separator ), line.substring( separator + 1 ) )
+}
+assert( expected.equals( overrides ) )
@@ -0,0 +1,25 @@
+
+// Only the remote pom with a parent needs its effective model to be built
+File itDirectory = new File("target/it/remote-dependency-management-streaming")
+
+Set built = new HashSet()
+new File(itDirectory, "build.log").eachLine { line ->
+  int index = line.indexOf( "Building effective model of remote pom: " )
+  if ( index >= 0 )
+  {
+    built.add( line.substring( index + "Building effective model of remote pom: ".length() ).trim() )
+  }
+}
+assert( built.equals( [ "org.jboss.maven.extension.dependency:depMgmt7:1.0" ] as Set ) )
+
+// Both ways of reading a remote pom must interpolate versions the same way
+Map expected = [ "junit:junit" : "4.1",
+                 "commons-lang:commons-lang" : "2.6",
+                 "commons-io:commons-io" : "1.4" ]
+
+Map overrides = [:]
+new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/remote-dependency-management-streaming/dependency-overrides.properties").eachLine { line ->
+  int separator = line.indexOf( "=" )
+  overrides.put( line.substring( 0, separator ), line.substring( separator + 1 ) )
+}
+assert( expected.equals( overrides ) )
@@ -0,0 +1,10 @@
+// A remote plugin without a version must leave the version of the project's plugin alone
+File itDirectory = new File("target/it/remote-plugin-management-versionless")
+
+String effectivePom = new File(itDirectory, "target/classes/META-INF/maven/org.jboss.maven.extension.dependency/remote-plugin-management-versionless/effective-pom.xml").text
+Map versions = [:]
+( effectivePom =~ /(?s)<artifactId>([^<]*)<\/artifactId>\s*<version>([^<]*)<\/version>/ ).each { match, artifactId, version ->
+  versions.put( artifactId, version )
+}
+assert( "3.1".equals( versions.get( "maven-compiler-plugin" ) ) )
+assert( "2.3.2".equals( versions.get( "maven-jar-plugin" ) ) )
@@ -0,0 +1,12 @@
+
+// The effective model of the remote pom is shared by all the overriders, so it must only be built once
+File buildLog = new File("target/it/remote-shared-management/build.log")
+
+int builds = 0
+buildLog.eachLine { line ->
+  if ( line.contains( "Building effective model of remote pom: org.jboss.maven.extension.dependency:sharedMgmt1:1.0" ) )
+  {
+    builds++
+  }
+}
+assert( builds == 1 )
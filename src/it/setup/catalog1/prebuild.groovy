@@ -0,0 +1,7 @@
+// Compile the catalog published with this pom from the pom itself, as a BOM's catalog is generated for a release
+import org.jboss.maven.extension.dependency.resolver.AlignmentCatalogWriter
+
+File catalog = new File( basedir, "catalog1.catalog" )
+AlignmentCatalogWriter.main( [ new File( basedir, "pom.xml" ).path, catalog.path, localRepositoryPath.path ] as String[] )
+
+assert( catalog.isFile() )
@@ -0,0 +1,18 @@
+// Compile the catalog published with this pom, then point its last entry at a string which doesn't exist
+import org.jboss.maven.extension.dependency.resolver.AlignmentCatalogWriter
+
+File catalog = new File( basedir, "catalog2.catalog" )
+AlignmentCatalogWriter.main( [ new File( basedir, "pom.xml" ).path, catalog.path, localRepositoryPath.path ] as String[] )
+
+RandomAccessFile file = new RandomAccessFile( catalog, "rw" )
+try
+{
+  file.seek( file.length() - 4 )
+  file.writeInt( Integer.MAX_VALUE )
+}
+finally
+{
+  file.close()
+}
+
+assert( catalog.isFile() )
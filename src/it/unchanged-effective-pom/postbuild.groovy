@@ -0,0 +1,5 @@
+// No version changed, so only the overrides are recorded
+File metaInfDirectory = new File("target/it/unchanged-effective-pom/target/classes/META-INF/maven/org.jboss.maven.extension.dependency/unchanged-effective-pom")
+
+assert( new File(metaInfDirectory, "dependency-overrides.properties").exists() )
+assert( !new File(metaInfDirectory, "effective-pom.xml").exists() )
@@ -15,11 +15,23 @@
  */
 package org.jboss.maven.extension.dependency;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.AbstractMavenLifecycleParticipant;
 import org.apache.maven.MavenExecutionException;
@@ -27,20 +39,19 @@ import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.building.ModelBuilder;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.PlexusContainerException;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
-import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.util.IOUtil;
 import org.jboss.maven.extension.dependency.metainf.EffectivePomGenerator;
-import org.jboss.maven.extension.dependency.metainf.MetaInfWriter;
 import org.jboss.maven.extension.dependency.modelmodifier.ModelModifier;
+import org.jboss.maven.extension.dependency.modelmodifier.ReactorProjects;
 import org.jboss.maven.extension.dependency.modelmodifier.SessionModifier;
 import org.jboss.maven.extension.dependency.modelmodifier.propertyoverride.PropertyMappingOverrider;
+import org.jboss.maven.extension.dependency.modelmodifier.versionoverride.AbstractVersionOverrider;
 import org.jboss.maven.extension.dependency.modelmodifier.versionoverride.DepVersionOverrider;
 import org.jboss.maven.extension.dependency.modelmodifier.versionoverride.PluginVersionOverrider;
-import org.jboss.maven.extension.dependency.resolver.EffectiveModelBuilder;
+import org.jboss.maven.extension.dependency.util.ExtensionConfiguration;
 import org.jboss.maven.extension.dependency.util.Log;
 import org.sonatype.aether.impl.ArtifactResolver;
 
@@ -56,32 +67,56 @@ public class DependencyManagementLifecycleParticipant
     @Requirement
     private Logger logger;
 
-    private final List<ModelModifier> afterProjectsReadModifierList = new ArrayList<ModelModifier>();
-
-    private final List<SessionModifier> afterSessionStartModifierList = new ArrayList<SessionModifier>();
-
     @Requirement
     private ArtifactResolver resolver;
 
     @Requirement
     private ModelBuilder modelBuilder;
 
-    private int sessionChangeCount = 0;
+    /**
+     * The name of the property which sets how many projects are modified at the same time. Defaults to 1. <br />
+     * ex: -DdependencyManagement.threads=4
+     */
+    private static final String THREADS_PROPERTY = "dependencyManagement.threads";
 
     /**
-     * Load the build modifiers at instantiation time
+     * The name of the property which sets when the effective pom of a project is written: "always", "changed" (when
+     * the project or the session was modified) or "never". Defaults to "changed". <br />
+     * ex: -DdependencyManagement.effectivePom=never
      */
-    public DependencyManagementLifecycleParticipant()
-    {
-        // Logger is not available yet
-        System.out.println( "[INFO] Init Maven Dependency Management Extension " + loadProjectVersion() );
+    private static final String EFFECTIVE_POM_PROPERTY = "dependencyManagement.effectivePom";
 
-        afterProjectsReadModifierList.add( new DepVersionOverrider() );
-        afterProjectsReadModifierList.add( new PluginVersionOverrider() );
+    private static final String EFFECTIVE_POM_ALWAYS = "always";
 
-        afterSessionStartModifierList.add( new PropertyMappingOverrider() );
+    private static final String EFFECTIVE_POM_CHANGED = "changed";
 
-    }
+    private static final String EFFECTIVE_POM_NEVER = "never";
+
+    /**
+     * Packaging types which don't produce an archive, so there is nothing to add an effective pom to
+     */
+    private static final Set<String> UNPACKAGED_TYPES = Collections.singleton( "pom" );
+
+    /**
+     * The state of each running session. The participant is shared by every session in the JVM, so it keeps no state
+     * of its own.
+     */
+    private final ConcurrentMap<MavenSession, SessionContext> sessionContexts =
+        new ConcurrentHashMap<MavenSession, SessionContext>();
+
+    /**
+     * Prefixes of the system properties which override a single version
+     */
+    private static final String[] OVERRIDE_PROPERTY_PREFIXES = { DepVersionOverrider.DEPENDENCY_VERSION_OVERRIDE_PREFIX,
+        PluginVersionOverrider.PLUGIN_VERSION_OVERRIDE_PREFIX };
+
+    /**
+     * System properties which list the remote poms or files to read overrides from
+     */
+    private static final String[] OVERRIDE_SOURCE_PROPERTIES = {
+        DepVersionOverrider.DEPENDENCY_MANAGEMENT_POM_PROPERTY, PluginVersionOverrider.PLUGIN_MANAGEMENT_POM_PROPERTY,
+        PropertyMappingOverrider.PROPERTY_MANAGEMENT_POM_PROPERTY, DepVersionOverrider.VERSION_OVERRIDES_FILE_PROPERTY,
+        PluginVersionOverrider.PLUGIN_VERSION_OVERRIDES_FILE_PROPERTY };
 
     /**
      * Get the version of the current project from the properties file
@@ -113,30 +148,103 @@ public class DependencyManagementLifecycleParticipant
         return version;
     }
 
+    /**
+     * Check whether any of the extension's inputs are set. When none are, the extension leaves the build alone and
+     * skips all of its setup.
+     *
+     * @param configuration The configuration of the session
+     * @return true if at least one override, remote pom or override file property is set
+     */
+    private static boolean isActive( ExtensionConfiguration configuration )
+    {
+        for ( String property : OVERRIDE_SOURCE_PROPERTIES )
+        {
+            if ( configuration.getProperty( property ) != null )
+            {
+                return true;
+            }
+        }
+        for ( String prefix : OVERRIDE_PROPERTY_PREFIXES )
+        {
+            if ( !configuration.getPropertiesByPrefix( prefix ).isEmpty() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take the configuration of a session
+     *
+     * @param session The session
+     * @return The configuration, which resolves relative paths against the execution root of the session
+     */
+    private static ExtensionConfiguration newConfiguration( MavenSession session )
+    {
+        String executionRoot = session.getExecutionRootDirectory();
+        return new ExtensionConfiguration( session.getSystemProperties(), session.getUserProperties(),
+                                           executionRoot == null ? null : new File( executionRoot ) );
+    }
+
+    /**
+     * Create the context of a session and log the extension version
+     *
+     * @param session The session
+     * @param configuration The configuration of the session
+     * @return The context of the session
+     */
+    private SessionContext startSession( MavenSession session, ExtensionConfiguration configuration )
+    {
+        logger.info( "Init Maven Dependency Management Extension " + loadProjectVersion() );
+        SessionContext context = new SessionContext( session, configuration, resolver, modelBuilder );
+        sessionContexts.put( session, context );
+        return context;
+    }
+
+    /**
+     * Discard the context of a session, if it has one
+     *
+     * @param session The session
+     */
+    private void endSession( MavenSession session )
+    {
+        SessionContext context = sessionContexts.remove( session );
+        if ( context != null )
+        {
+            context.close();
+        }
+    }
+
     @Override
     public void afterSessionStart( MavenSession session )
         throws MavenExecutionException
     {
         Log.setLog( logger );
 
-        try
-        {
-            EffectiveModelBuilder.init( session, resolver, modelBuilder );
-        }
-        catch ( ComponentLookupException e )
+        ExtensionConfiguration configuration = newConfiguration( session );
+        if ( !isActive( configuration ) )
         {
-            logger.error( "EffectiveModelBuilder init could not look up plexus component: " + e );
+            logger.debug( "No dependency management overrides are set, skipping extension" );
+            return;
         }
-        catch ( PlexusContainerException e )
+        SessionContext context = startSession( session, configuration );
+
+        // Start fetching the remote poms now, so that they are resolved while Maven reads the projects
+        for ( ModelModifier currModifier : context.getModelModifiers() )
         {
-            logger.error( "EffectiveModelBuilder init produced a plexus container error: " + e );
+            if ( currModifier instanceof AbstractVersionOverrider )
+            {
+                ( (AbstractVersionOverrider) currModifier ).prefetchRemoteOverrides( configuration );
+            }
         }
-        for ( SessionModifier currModifier : afterSessionStartModifierList )
+
+        for ( SessionModifier currModifier : context.getSessionModifiers() )
         {
-            boolean modelChanged = currModifier.updateSession( session );
+            boolean modelChanged = currModifier.updateSession( session, configuration );
             if ( modelChanged )
             {
-                sessionChangeCount++;
+                context.sessionChanged();
             }
         }
     }
@@ -145,47 +253,243 @@ public class DependencyManagementLifecycleParticipant
     public void afterProjectsRead( MavenSession session )
         throws MavenExecutionException
     {
-        // The dependency management overrider needs to know which projects
-        // are in the reactor, and therefore should not be overridden.
-        StringBuilder reactorProjects = new StringBuilder();
-        for ( MavenProject project : session.getProjects() )
+        SessionContext context = sessionContexts.get( session );
+        if ( context == null )
         {
-            reactorProjects.append( project.getGroupId() + ":" + project.getArtifactId() + "," );
+            // Extensions loaded from the pom start after the session
+            Log.setLog( logger );
+            ExtensionConfiguration configuration = newConfiguration( session );
+            if ( !isActive( configuration ) )
+            {
+                return;
+            }
+            context = startSession( session, configuration );
         }
-        System.setProperty( "reactorProjectGAs",  reactorProjects.toString() );
 
-        // Apply model modifiers to the projects' models
-        for ( MavenProject project : session.getProjects() )
+        try
         {
-            logger.debug( "Checking project '" + project.getId() + "'" );
-            int modelChangeCount = 0;
+            // The dependency management overrider needs to know which projects
+            // are in the reactor, and therefore should not be overridden.
+            ReactorProjects reactorProjects = new ReactorProjects( session.getProjects() );
 
-            Model currModel = project.getModel();
-
-            // Run the modifiers against the built model
-            for ( ModelModifier currModifier : afterProjectsReadModifierList )
+            // Apply model modifiers to the projects' models
+            int threads = getThreadCount( context.getConfiguration() );
+            String effectivePom = getEffectivePomMode( context.getConfiguration() );
+            if ( threads <= 1 || session.getProjects().size() <= 1 )
             {
-                boolean modelChanged = currModifier.updateModel( currModel );
-                if ( modelChanged )
+                for ( MavenProject project : session.getProjects() )
                 {
-                    modelChangeCount++;
+                    updateProject( project, context, reactorProjects, effectivePom );
                 }
             }
+            else
+            {
+                updateProjectsConcurrently( session.getProjects(), context, reactorProjects, effectivePom, threads );
+            }
+
+            // The informational files are written in the background, they must be complete before the build uses them
+            if ( !context.getMetaInfWriter().flush() )
+            {
+                logger.warn( "Some META-INF files could not be written, see the errors above. They are left out of the "
+                    + "packaged projects." );
+            }
+        }
+        finally
+        {
+            // Nothing else is done for the session, so don't hold on to its state until it ends
+            endSession( session );
+        }
+    }
+
+    /**
+     * Discard the state of the session. Only called by Maven 3.2.1 and later, older versions rely on the state being
+     * discarded once the projects have been modified.
+     *
+     * @param session The session which ended
+     */
+    public void afterSessionEnd( MavenSession session )
+        throws MavenExecutionException
+    {
+        endSession( session );
+    }
+
+    /**
+     * Get the number of threads used to modify the projects' models
+     *
+     * @param configuration The configuration of the session
+     * @return The number of threads, at least 1
+     */
+    private int getThreadCount( ExtensionConfiguration configuration )
+    {
+        String threads = configuration.getProperty( THREADS_PROPERTY, "1" );
+        try
+        {
+            int threadCount = Integer.parseInt( threads.trim() );
+            if ( threadCount >= 1 )
+            {
+                return threadCount;
+            }
+        }
+        catch ( NumberFormatException e )
+        {
+            // Reported below
+        }
+        logger.warn( "Ignoring invalid " + THREADS_PROPERTY + ": " + threads );
+        return 1;
+    }
+
+    /**
+     * Get when the effective pom of a project is written
+     *
+     * @param configuration The configuration of the session
+     * @return One of "always", "changed" or "never"
+     */
+    private String getEffectivePomMode( ExtensionConfiguration configuration )
+    {
+        String mode = configuration.getProperty( EFFECTIVE_POM_PROPERTY, EFFECTIVE_POM_CHANGED ).trim();
+        if ( EFFECTIVE_POM_ALWAYS.equals( mode ) || EFFECTIVE_POM_CHANGED.equals( mode )
+            || EFFECTIVE_POM_NEVER.equals( mode ) )
+        {
+            return mode;
+        }
+        logger.warn( "Ignoring invalid " + EFFECTIVE_POM_PROPERTY + ": " + mode );
+        return EFFECTIVE_POM_CHANGED;
+    }
 
-            // If something changed, then it will be useful to output extra info
-            if ( sessionChangeCount >=1 || modelChangeCount >= 1 )
+    /**
+     * Run the model modifiers against a project, and write its effective pom if the model changed
+     *
+     * @param project The project to modify
+     * @param context The context of the session
+     * @param reactorProjects The projects in the reactor
+     * @param effectivePom When to write the effective pom
+     * @throws MavenExecutionException If a modifier fails
+     */
+    private void updateProject( MavenProject project, SessionContext context, ReactorProjects reactorProjects,
+                                String effectivePom )
+        throws MavenExecutionException
+    {
+        logger.debug( "Checking project '" + project.getId() + "'" );
+        int modelChangeCount = 0;
+
+        Model currModel = project.getModel();
+
+        // Run the modifiers against the built model
+        for ( ModelModifier currModifier : context.getModelModifiers() )
+        {
+            boolean modelChanged =
+                currModifier.updateModel( currModel, context.getConfiguration(), reactorProjects );
+            if ( modelChanged )
+            {
+                modelChangeCount++;
+            }
+        }
+
+        // Projects which aren't packaged would not include the effective pom anyway
+        if ( EFFECTIVE_POM_NEVER.equals( effectivePom ) || UNPACKAGED_TYPES.contains( currModel.getPackaging() ) )
+        {
+            return;
+        }
+
+        // If something changed, then it will be useful to output extra info
+        if ( EFFECTIVE_POM_ALWAYS.equals( effectivePom ) || context.getSessionChangeCount() >= 1
+            || modelChangeCount >= 1 )
+        {
+            logger.debug( "Session/Model changed at least once, writing informational files" );
+            context.getMetaInfWriter().writeResource( currModel, new EffectivePomGenerator() );
+        }
+        else
+        {
+            logger.debug( "Project '" + project.getId() + "' unchanged, not writing its effective pom" );
+        }
+    }
+
+    /**
+     * Modify the projects on a fixed pool of threads. Each project is modified by a single thread, and a failure is
+     * reported for the first failing project in reactor order, as it would be by a sequential run.
+     *
+     * @param projects The projects to modify
+     * @param context The context of the session
+     * @param reactorProjects The projects in the reactor
+     * @param effectivePom When to write the effective poms
+     * @param threads The number of threads to use
+     * @throws MavenExecutionException If a modifier fails
+     */
+    private void updateProjectsConcurrently( List<MavenProject> projects, final SessionContext context,
+                                             final ReactorProjects reactorProjects, final String effectivePom,
+                                             int threads )
+        throws MavenExecutionException
+    {
+        logger.debug( "Modifying " + projects.size() + " projects on " + threads + " threads" );
+        ExecutorService pool = Executors.newFixedThreadPool( Math.min( threads, projects.size() ),
+                                                             new ProjectThreadFactory() );
+        List<Future<Void>> updates = new ArrayList<Future<Void>>( projects.size() );
+        try
+        {
+            for ( final MavenProject project : projects )
+            {
+                updates.add( pool.submit( new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                        throws MavenExecutionException
+                    {
+                        updateProject( project, context, reactorProjects, effectivePom );
+                        return null;
+                    }
+                } ) );
+            }
+
+            for ( Future<Void> update : updates )
             {
-                logger.debug( "Session/Model changed at least once, writing informational files" );
                 try
                 {
-                    MetaInfWriter.writeResource( currModel, new EffectivePomGenerator() );
+                    update.get();
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof MavenExecutionException )
+                    {
+                        throw (MavenExecutionException) cause;
+                    }
+                    if ( cause instanceof RuntimeException )
+                    {
+                        throw (RuntimeException) cause;
+                    }
+                    if ( cause instanceof Error )
+                    {
+                        throw (Error) cause;
+                    }
+                    throw new MavenExecutionException( "Unable to modify project", cause );
                 }
-                catch ( IOException e )
+                catch ( InterruptedException e )
                 {
-                    logger.error( "Could not write the effective POM of model '" + currModel.getId() + "' due to " + e );
+                    Thread.currentThread().interrupt();
+                    throw new MavenExecutionException( "Interrupted while modifying projects", e );
                 }
             }
         }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
 
+    /**
+     * Creates named daemon threads for modifying projects
+     */
+    private static class ProjectThreadFactory
+        implements ThreadFactory
+    {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, "mvndepext-project-" + threadCount.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
     }
 }
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.building.ModelBuilder;
+import org.jboss.maven.extension.dependency.metainf.MetaInfWriter;
+import org.jboss.maven.extension.dependency.modelmodifier.ModelModifier;
+import org.jboss.maven.extension.dependency.modelmodifier.SessionModifier;
+import org.jboss.maven.extension.dependency.modelmodifier.propertyoverride.PropertyMappingOverrider;
+import org.jboss.maven.extension.dependency.modelmodifier.versionoverride.DepVersionOverrider;
+import org.jboss.maven.extension.dependency.modelmodifier.versionoverride.PluginVersionOverrider;
+import org.jboss.maven.extension.dependency.resolver.EffectiveModelBuilder;
+import org.jboss.maven.extension.dependency.util.ExtensionConfiguration;
+import org.sonatype.aether.impl.ArtifactResolver;
+
+/**
+ * Everything the extension knows about one build session: its configuration, the remote poms resolved for it and the
+ * modifiers with their cached overrides. A context is created when the session starts and discarded when it ends, so
+ * that sessions which run one after the other or at the same time in a long lived JVM never share state.
+ */
+class SessionContext
+{
+    private final ExtensionConfiguration configuration;
+
+    private final EffectiveModelBuilder modelBuilder;
+
+    private final MetaInfWriter metaInfWriter = new MetaInfWriter();
+
+    private final List<ModelModifier> modelModifiers = new ArrayList<ModelModifier>();
+
+    private final List<SessionModifier> sessionModifiers = new ArrayList<SessionModifier>();
+
+    private int sessionChangeCount = 0;
+
+    /**
+     * @param session The session
+     * @param configuration The configuration of the session
+     * @param resolver The artifact resolver
+     * @param modelBuilder The model builder
+     */
+    SessionContext( MavenSession session, ExtensionConfiguration configuration, ArtifactResolver resolver,
+                    ModelBuilder modelBuilder )
+    {
+        this.configuration = configuration;
+        this.modelBuilder = new EffectiveModelBuilder( session, configuration, resolver, modelBuilder );
+
+        modelModifiers.add( new DepVersionOverrider( this.modelBuilder, metaInfWriter ) );
+        modelModifiers.add( new PluginVersionOverrider( this.modelBuilder, metaInfWriter ) );
+
+        sessionModifiers.add( new PropertyMappingOverrider( this.modelBuilder ) );
+    }
+
+    ExtensionConfiguration getConfiguration()
+    {
+        return configuration;
+    }
+
+    /**
+     * @return Writes the resources of the session
+     */
+    MetaInfWriter getMetaInfWriter()
+    {
+        return metaInfWriter;
+    }
+
+    /**
+     * @return The modifiers to run against each project's model
+     */
+    List<ModelModifier> getModelModifiers()
+    {
+        return modelModifiers;
+    }
+
+    /**
+     * @return The modifiers to run against the session when it starts
+     */
+    List<SessionModifier> getSessionModifiers()
+    {
+        return sessionModifiers;
+    }
+
+    /**
+     * @return The number of session modifiers which changed the session
+     */
+    int getSessionChangeCount()
+    {
+        return sessionChangeCount;
+    }
+
+    /**
+     * Record that a session modifier changed the session
+     */
+    void sessionChanged()
+    {
+        sessionChangeCount++;
+    }
+
+    /**
+     * Release the resources of the session
+     */
+    void close()
+    {
+        modelBuilder.close();
+        metaInfWriter.close();
+    }
+}
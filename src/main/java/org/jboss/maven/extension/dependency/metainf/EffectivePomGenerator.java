@@ -16,12 +16,12 @@
 package org.jboss.maven.extension.dependency.metainf;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStream;
+import java.io.Writer;
 
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
-import org.codehaus.plexus.util.xml.PrettyPrintXMLWriter;
-import org.codehaus.plexus.util.xml.XMLWriter;
+import org.codehaus.plexus.util.WriterFactory;
 
 /**
  * Roughly emulate the generation behaviour of help:effective-pom. This will not produce an exact duplicate of
@@ -31,38 +31,21 @@ public class EffectivePomGenerator
     implements MetaInfGenerator
 {
     /**
-     * Convert an in-memory model to POM XML in string format.
+     * Write an in-memory model as POM XML, in the encoding of the model. MavenXpp3Writer already indents its output, so
+     * the model is serialized in a single pass.
      * 
      * @param model The model to convert
-     * @return The POM XML representation of the project's model
-     * @throws IOException If MavenXpp3Writer fails to write the raw xml to the internal buffer.
+     * @param out The stream to write the POM XML to
+     * @throws IOException If MavenXpp3Writer fails to write the xml
      */
     @Override
-    public String generateContent( Model model )
+    public void generateContent( Model model, OutputStream out )
         throws IOException
     {
-        String encoding = model.getModelEncoding();
-
-        // Used for taking data out of the library methods that require a writer.
-        StringWriter xmlBuffer;
-
-        // Extract the basic XML data out of maven's MavenXpp3Writer
-        xmlBuffer = new StringWriter();
-        MavenXpp3Writer pomWriter = new MavenXpp3Writer();
-        pomWriter.write( xmlBuffer, model );
-        String basicPomXML = xmlBuffer.toString();
-
-        // Convert the basic XML into something aesthetically pleasing
-        xmlBuffer = new StringWriter();
-        XMLWriter xmlWriter = new PrettyPrintXMLWriter( xmlBuffer, encoding, null );
-        xmlWriter.writeMarkup( basicPomXML );
-        String effectivePom = xmlBuffer.toString();
-
-        // TODO: remove duplicate XML header in output, ex:
-        // <?xml version="1.0" encoding="UTF-8"?>
-        // <?xml version="1.0" encoding="UTF-8"?>
-
-        return effectivePom;
+        String encoding = model.getModelEncoding() != null ? model.getModelEncoding() : "UTF-8";
+        Writer writer = WriterFactory.newWriter( out, encoding );
+        new MavenXpp3Writer().write( writer, model );
+        writer.flush();
     }
 
     @Override
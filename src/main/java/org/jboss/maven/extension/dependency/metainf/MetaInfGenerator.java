@@ -16,6 +16,7 @@
 package org.jboss.maven.extension.dependency.metainf;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 import org.apache.maven.model.Model;
 
@@ -23,13 +24,14 @@ public interface MetaInfGenerator
 {
 
     /**
-     * Produce the file content as a single String.
+     * Write the file content to a stream, in the encoding of the generator's choice. The stream is buffered and is
+     * closed by the caller.
      * 
      * @param model Model to get information from
-     * @return String of content
-     * @throws IOException If there is a problem encountered when generating the content
+     * @param out Stream to write the content to
+     * @throws IOException If there is a problem encountered when generating or writing the content
      */
-    public String generateContent( Model model )
+    public void generateContent( Model model, OutputStream out )
         throws IOException;
 
     /**
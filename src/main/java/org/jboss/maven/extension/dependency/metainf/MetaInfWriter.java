@@ -15,91 +15,711 @@
  */
 package org.jboss.maven.extension.dependency.metainf;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.security.SecureRandom;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Resource;
 import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.jboss.maven.extension.dependency.util.ChecksumUtil;
+import org.jboss.maven.extension.dependency.util.FileSystemUtil;
 import org.jboss.maven.extension.dependency.util.Log;
 
 /**
- * This class writes out metainf resources to be included with the jar at META-INF/maven/group/project/
+ * This class writes out metainf resources to be included with the jar at META-INF/maven/group/project/. Each session
+ * has its own writer, which must be flushed before the models are used by the build.
  */
 public class MetaInfWriter
 {
     /**
-     * A unique name to use for a prefix in temp output
+     * The prefix of the directory under the temp directory which holds the output directories of the current user
      */
-    private static String OUTPUT_DIR_PREFIX = "mvndepext";
+    private static final String OUTPUT_DIR_PREFIX = "mvndepext-";
 
     /**
-     * Write the POM formatted model to the filesystem, and add it to the model build resources
+     * Number of hex digits of the build directory checksum used to name an output directory
+     */
+    private static final int OUTPUT_DIR_HASH_LENGTH = 16;
+
+    /**
+     * The name of the directory under the output root holding the files shared by several modules, named after their
+     * checksum
+     */
+    private static final String SHARED_DIR_NAME = "shared";
+
+    /**
+     * How long a shared file or an output directory is kept after it was last used if the current build doesn't use
+     * it, in milliseconds. The module files linked to a shared file are not affected when it is removed.
+     */
+    private static final long UNUSED_FILE_TTL = TimeUnit.DAYS.toMillis( 1 );
+
+    /**
+     * The directory holding the output directories, only accessible by the current user. Null until first used after
+     * the last flush, so that each build checks it again: in a long lived JVM it may have been removed, and recreated
+     * by another user, since the last build.
+     */
+    private File outputRoot;
+
+    /**
+     * Where the output directory is copied to in the packaged module
+     */
+    private static final String TARGET_PATH = "META-INF/maven";
+
+    /**
+     * Number of threads writing resources
+     */
+    private static final int WRITER_THREADS = 2;
+
+    /**
+     * Number of resources which may wait for a writer thread before the caller writes them itself
+     */
+    private static final int MAX_QUEUED_WRITES = 32;
+
+    /**
+     * Writes queued since the last flush
+     */
+    private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<PendingWrite>();
+
+    /**
+     * The output directories used since the last flush
+     */
+    private final Set<File> outputDirs = Collections.newSetFromMap( new ConcurrentHashMap<File, Boolean>() );
+
+    /**
+     * The files written since the last flush
+     */
+    private final Set<File> writtenFiles = Collections.newSetFromMap( new ConcurrentHashMap<File, Boolean>() );
+
+    /**
+     * The shared files written or reused since the last flush, keyed by the checksum of their content
+     */
+    private final ConcurrentMap<String, FutureTask<File>> sharedFiles =
+        new ConcurrentHashMap<String, FutureTask<File>>();
+
+    /**
+     * Bytes written since the last flush, counting each shared file once
+     */
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /**
+     * Module files linked to a shared file since the last flush
+     */
+    private final AtomicInteger linkedFiles = new AtomicInteger();
+
+    /**
+     * Files left untouched since the last flush because their content has not changed
+     */
+    private final AtomicInteger unchangedFiles = new AtomicInteger();
+
+    /**
+     * Null until the first resource is queued
+     */
+    private ExecutorService writerPool;
+
+    /**
+     * Add a generated file to the model build resources, and queue the generation and writing of the file. Resources
+     * can be queued from several threads as long as each model is only modified by one of them, and is not modified
+     * after its effective pom has been queued.
      * 
-     * @param model The model to convert to a POM, and to add the POM to
-     * @throws IOException If there is a problem generating or writing the POM
+     * @param model The model to generate the file from, and to add the file to
+     * @param generator Generates the content of the file
      */
-    public static void writeResource( Model model, MetaInfGenerator generator )
-        throws IOException
+    public void writeResource( final Model model, final MetaInfGenerator generator )
+    {
+        final File outputFile = addOutputFile( model, generator );
+        queueWrite( model, generator, outputFile, new Callable<Void>()
+        {
+            @Override
+            public Void call()
+                throws IOException
+            {
+                bytesWritten.addAndGet( write( model, generator, outputFile ) );
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * Add a generated file whose content does not depend on the model to the model build resources, and queue its
+     * generation. Files like the override tables are often the same for every module, so each distinct content is
+     * written once per build to a shared directory, and the module's file is hard linked to it, or copied where links
+     * aren't supported. A module file which already has the content is left untouched. If the module's file can't be
+     * linked or copied, for example because another build removed the shared file as unused in the meantime, the
+     * content is written to the module's file instead.
+     *
+     * @param model The model to add the file to
+     * @param generator Generates the content of the file
+     */
+    public void writeSharedResource( final Model model, final MetaInfGenerator generator )
+    {
+        final File outputFile = addOutputFile( model, generator );
+        queueWrite( model, generator, outputFile, new Callable<Void>()
+        {
+            @Override
+            public Void call()
+                throws IOException
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                generator.generateContent( model, out );
+                byte[] content = out.toByteArray();
+                String sha1 = ChecksumUtil.toHex( ChecksumUtil.newSha1Digest().digest( content ) );
+                if ( isUnchanged( outputFile, content.length, sha1 ) )
+                {
+                    unchangedFiles.incrementAndGet();
+                    return null;
+                }
+                try
+                {
+                    File sharedFile = getSharedFile( content, sha1, generator.getDesiredFileExtension() );
+                    link( sharedFile, outputFile );
+                }
+                catch ( IOException e )
+                {
+                    Log.getLog().debug( "Couldn't link " + outputFile + " to a shared file, writing it instead: " + e );
+                    writeContent( content, outputFile );
+                }
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * Add the output directory of a model to its build resources, and record the file a generator writes to
+     *
+     * @return The file the generator writes to
+     */
+    private File addOutputFile( Model model, MetaInfGenerator generator )
     {
         // Paths
         String projectArtifactID = model.getArtifactId();
         String projectGroupID = model.getGroupId();
-        String outputPath = TempDirectory.generateDir( OUTPUT_DIR_PREFIX ).toString();
-        String groupPath = outputPath + File.separator + projectGroupID;
-        String artifactPath = groupPath + File.separator + projectArtifactID;
+        File outputDir = getOutputDirectory( model );
+        File artifactDir = new File( new File( outputDir, projectGroupID ), projectArtifactID );
 
         // Generator info
-        String desc = generator.getDescription();
         String fileName = generator.getDescription().replace( " ", "-" );
         String fileExt = generator.getDesiredFileExtension();
 
         // File ref
-        File outputFile = new File( artifactPath + File.separator + fileName + "." + fileExt );
+        File outputFile = new File( artifactDir, fileName + "." + fileExt );
+
+        // Add outputDir directory tree to model build resources, once per model
+        addResource( model, outputDir );
+
+        if ( outputDirs.add( outputDir ) )
+        {
+            // Mark the directory as used, so it isn't removed as unused by another build
+            createDirectories( outputDir );
+            outputDir.setLastModified( System.currentTimeMillis() );
+        }
+        writtenFiles.add( outputFile );
+        return outputFile;
+    }
+
+    /**
+     * Queue the writing of a resource on the writer pool, a small pool of background threads. If the write fails, the
+     * file is removed, so that the file written by an earlier build isn't packaged as if it was current.
+     */
+    private void queueWrite( Model model, MetaInfGenerator generator, final File outputFile,
+                             final Callable<Void> write )
+    {
+        final String desc = generator.getDescription();
+        final String projectId = model.getGroupId() + ":" + model.getArtifactId();
+        Future<?> pendingWrite = getWriterPool().submit( new Callable<Void>()
+        {
+            @Override
+            public Void call()
+                throws Exception
+            {
+                try
+                {
+                    write.call();
+                }
+                catch ( Exception e )
+                {
+                    writtenFiles.remove( outputFile );
+                    outputFile.delete();
+                    throw e;
+                }
+                Log.getLog().debug( desc + " written and included for '" + projectId + "'" );
+                return null;
+            }
+        } );
+        pendingWrites.add( new PendingWrite( desc, projectId, pendingWrite ) );
+    }
+
+    /**
+     * Get the shared file holding some content, writing it unless this build or an earlier one already has
+     *
+     * @param content The content of the file
+     * @param sha1 The checksum of the content
+     * @param fileExt The extension of the file
+     * @return The shared file
+     * @throws IOException If the file can't be written
+     */
+    private File getSharedFile( final byte[] content, final String sha1, String fileExt )
+        throws IOException
+    {
+        final File sharedDir = new File( getOutputRoot(), SHARED_DIR_NAME );
+        final File sharedFile = new File( sharedDir, sha1 + "." + fileExt );
+
+        FutureTask<File> newTask = new FutureTask<File>( new Callable<File>()
+        {
+            @Override
+            public File call()
+                throws IOException
+            {
+                if ( isUnchanged( sharedFile, content.length, sha1 ) )
+                {
+                    return sharedFile;
+                }
+                if ( !createDirectories( sharedDir ) )
+                {
+                    throw new IOException( "Couldn't create " + sharedDir );
+                }
+                File tmpFile = File.createTempFile( sharedFile.getName(), ".tmp", sharedDir );
+                OutputStream out = null;
+                try
+                {
+                    out = new FileOutputStream( tmpFile );
+                    out.write( content );
+                }
+                finally
+                {
+                    IOUtil.close( out );
+                }
+                // Another build may have written the same content in the meantime
+                if ( !tmpFile.renameTo( sharedFile ) && !sharedFile.isFile() )
+                {
+                    tmpFile.delete();
+                    throw new IOException( "Couldn't rename " + tmpFile + " to " + sharedFile );
+                }
+                tmpFile.delete();
+                bytesWritten.addAndGet( content.length );
+                return sharedFile;
+            }
+        } );
+        FutureTask<File> task = sharedFiles.putIfAbsent( sharedFile.getName(), newTask );
+        if ( task == null )
+        {
+            task = newTask;
+            task.run();
+        }
 
-        // Get content
-        String content;
         try
         {
-            content = generator.generateContent( model );
+            return task.get();
         }
-        catch ( IOException e )
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof IOException )
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException( "Couldn't write " + sharedFile, e.getCause() );
+        }
+        catch ( InterruptedException e )
         {
-            throw new IOException( "Couldn't generate " + desc + " from internal model", e );
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while writing " + sharedFile );
         }
+    }
 
-        // Write content to file
+    /**
+     * Replace a file by a hard link to a shared file, or by a copy of it if links aren't supported
+     *
+     * @param sharedFile The existing shared file
+     * @param file The file to replace
+     * @throws IOException If the file can't be linked or copied
+     */
+    private void link( File sharedFile, File file )
+        throws IOException
+    {
+        if ( !createDirectories( file.getParentFile() ) )
+        {
+            throw new IOException( "Couldn't create " + file.getParentFile() );
+        }
+        file.delete();
+        if ( FileSystemUtil.createLink( file, sharedFile ) )
+        {
+            linkedFiles.incrementAndGet();
+            touch( file );
+            return;
+        }
+        FileUtils.copyFile( sharedFile, file );
+        bytesWritten.addAndGet( file.length() );
+        touch( file );
+    }
+
+    /**
+     * Replace a file with some content, through a temporary file next to it. The file is replaced rather than
+     * overwritten, as it may be a link to a shared file.
+     *
+     * @param content The content of the file
+     * @param file The file to replace
+     * @throws IOException If the file can't be written
+     */
+    private void writeContent( byte[] content, File file )
+        throws IOException
+    {
+        File dirname = file.getParentFile();
+        if ( !createDirectories( dirname ) )
+        {
+            throw new IOException( "Couldn't create " + dirname );
+        }
+        File tmpFile = File.createTempFile( file.getName(), ".tmp", dirname );
+        OutputStream out = null;
         try
         {
-            writeStringToFile( content, outputFile );
+            out = new FileOutputStream( tmpFile );
+            out.write( content );
         }
         catch ( IOException e )
         {
-            throw new IOException( "Couldn't write " + desc, e );
+            IOUtil.close( out );
+            tmpFile.delete();
+            throw e;
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+        file.delete();
+        if ( !tmpFile.renameTo( file ) )
+        {
+            tmpFile.delete();
+            throw new IOException( "Couldn't rename " + tmpFile + " to " + file );
+        }
+        bytesWritten.addAndGet( content.length );
+    }
+
+    /**
+     * Give a file whose content changed the current time, so the resources plugin copies it again even if it was
+     * linked to a shared file written by an earlier build. The other files linked to the same shared file are touched
+     * too, which only makes the resources plugin copy them once more.
+     */
+    private static void touch( File file )
+    {
+        if ( !file.setLastModified( System.currentTimeMillis() ) )
+        {
+            Log.getLog().debug( "Couldn't update the time stamp of " + file );
+        }
+    }
+
+    /**
+     * Wait for every queued resource to be written, and report the ones which could not be, which are left out of the
+     * packaged modules. Files whose content has not
+     * changed since the last build were left untouched, so that the resources and jar plugins don't redo their work.
+     * The files left in the output directories by earlier builds which this build did not write are then removed.
+     *
+     * @return true if all the resources were written, false if some are missing
+     */
+    public boolean flush()
+    {
+        boolean written = true;
+        PendingWrite pendingWrite;
+        while ( ( pendingWrite = pendingWrites.poll() ) != null )
+        {
+            try
+            {
+                pendingWrite.getWrite().get();
+            }
+            catch ( ExecutionException e )
+            {
+                written = false;
+                Log.getLog().error( "Could not write the " + pendingWrite.getDescription() + " of '"
+                                        + pendingWrite.getProjectId() + "' due to " + e.getCause() );
+                Log.logAllCauses( e.getCause().getCause() );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                Log.getLog().error( "Interrupted while writing the " + pendingWrite.getDescription() + " of '"
+                                        + pendingWrite.getProjectId() + "'" );
+                return false;
+            }
+        }
+        removeStaleFiles();
+        Log.getLog().debug( "Wrote " + bytesWritten.getAndSet( 0 ) + " bytes of META-INF files, " + sharedFiles.size()
+                                + " shared files, " + linkedFiles.getAndSet( 0 ) + " files linked, "
+                                + unchangedFiles.getAndSet( 0 ) + " files unchanged" );
+        sharedFiles.clear();
+        return written;
+    }
+
+    /**
+     * Get the directory the generated files of a module are written to. It is not under the build directory, which a
+     * clean would empty before the resources are copied, but is derived from it so that each build of the module
+     * reuses it.
+     *
+     * @param model The model of the module
+     * @return The output directory, named after the checksum of the module's build directory
+     */
+    private File getOutputDirectory( Model model )
+    {
+        String buildDirectory = model.getBuild().getDirectory();
+        File buildDir =
+            buildDirectory != null ? new File( buildDirectory ) : new File( model.getProjectDirectory(), "target" );
+
+        MessageDigest digest = ChecksumUtil.newSha1Digest();
+        try
+        {
+            digest.update( buildDir.getAbsolutePath().getBytes( "UTF-8" ) );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            // Every Java platform is required to support UTF-8
+            throw new IllegalStateException( e );
+        }
+        String hash = ChecksumUtil.toHex( digest.digest() ).substring( 0, OUTPUT_DIR_HASH_LENGTH );
+        return new File( getOutputRoot(), hash );
+    }
+
+    /**
+     * Get the directory holding the output directories. It is named after the current user and reused by every build,
+     * unless it isn't a private directory of the user, in which case another user could have added files to it which
+     * would end up in the packaged modules; a new private directory is used instead.
+     *
+     * @return The output root
+     */
+    private synchronized File getOutputRoot()
+    {
+        if ( outputRoot == null )
+        {
+            File root = new File( System.getProperty( "java.io.tmpdir" ),
+                                  OUTPUT_DIR_PREFIX
+                                      + System.getProperty( "user.name", "" ).replaceAll( "[^A-Za-z0-9._-]", "_" ) );
+            if ( !FileSystemUtil.createPrivateDirectory( root ) )
+            {
+                try
+                {
+                    File newRoot = File.createTempFile( OUTPUT_DIR_PREFIX, "" );
+                    newRoot.delete();
+                    if ( !FileSystemUtil.createPrivateDirectory( newRoot ) )
+                    {
+                        throw new IOException( "Couldn't create private directory " + newRoot );
+                    }
+                    Log.getLog().warn( root + " is not a private directory of the current user, writing the "
+                                           + "generated files to " + newRoot );
+                    root = newRoot;
+                }
+                catch ( IOException e )
+                {
+                    throw new IllegalStateException( "Couldn't create a directory for the generated files", e );
+                }
+            }
+            outputRoot = root;
+        }
+        return outputRoot;
+    }
+
+    /**
+     * Create a directory under the output root along with its missing parents. The output root itself is never created
+     * here, only by getOutputRoot(), so that it can't be created without its permissions being restricted.
+     *
+     * @param dir The directory
+     * @return true if the directory exists
+     */
+    private boolean createDirectories( File dir )
+    {
+        if ( dir.isDirectory() )
+        {
+            return true;
+        }
+        File parent = dir.getParentFile();
+        if ( parent == null || dir.equals( getOutputRoot() ) )
+        {
+            return false;
+        }
+        return createDirectories( parent ) && ( dir.mkdir() || dir.isDirectory() );
+    }
+
+    /**
+     * Add the output directory to the model build resources, unless it is already there
+     */
+    private static void addResource( Model model, File outputDir )
+    {
+        String outputPath = outputDir.getPath();
+        for ( Resource resource : model.getBuild().getResources() )
+        {
+            if ( outputPath.equals( resource.getDirectory() ) && TARGET_PATH.equals( resource.getTargetPath() ) )
+            {
+                return;
+            }
         }
 
-        // Add outputPath directory tree to model build resources
         Resource newResource = new Resource();
         newResource.setDirectory( outputPath );
-        newResource.setTargetPath( "META-INF/maven" );
+        newResource.setTargetPath( TARGET_PATH );
 
         model.getBuild().addResource( newResource );
+    }
 
-        // Done
-        Log.getLog().debug( desc + " written and included for '" + projectGroupID + ":" + projectArtifactID + "'" );
+    /**
+     * Delete everything which earlier builds left in the output directories and which this build did not write, so
+     * it isn't packaged with the modules, even when a module has been renamed. Also delete the shared files and the
+     * output directories no build has used for a while.
+     */
+    private void removeStaleFiles()
+    {
+        for ( File outputDir : outputDirs )
+        {
+            removeUnwrittenFiles( outputDir );
+        }
+
+        File[] files = getOutputRoot().listFiles();
+        if ( files != null )
+        {
+            long expiry = System.currentTimeMillis() - UNUSED_FILE_TTL;
+            for ( File file : files )
+            {
+                if ( file.getName().equals( SHARED_DIR_NAME ) )
+                {
+                    removeUnusedSharedFiles( file, expiry );
+                }
+                else if ( file.isDirectory() && !outputDirs.contains( file ) && file.lastModified() < expiry )
+                {
+                    Log.getLog().debug( "Removing unused " + file );
+                    try
+                    {
+                        FileUtils.deleteDirectory( file );
+                    }
+                    catch ( IOException e )
+                    {
+                        Log.getLog().debug( "Couldn't remove " + file + ": " + e );
+                    }
+                }
+            }
+        }
+        outputDirs.clear();
+        writtenFiles.clear();
+        synchronized ( this )
+        {
+            outputRoot = null;
+        }
     }
 
     /**
-     * Write the entirety of a string to a file, replacing any existing contents.
-     * 
-     * @param content String to use as the entire contents for the file
+     * Delete the files under a directory which were not written since the last flush, and the directories left empty
+     */
+    private void removeUnwrittenFiles( File dir )
+    {
+        File[] files = dir.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        for ( File file : files )
+        {
+            if ( file.isDirectory() )
+            {
+                removeUnwrittenFiles( file );
+                // Only succeeds if the directory is now empty
+                file.delete();
+            }
+            else if ( !writtenFiles.contains( file ) )
+            {
+                Log.getLog().debug( "Removing stale " + file );
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Delete the shared files which were not used since the last flush, and not written or linked for a while
+     */
+    private void removeUnusedSharedFiles( File sharedDir, long expiry )
+    {
+        File[] files = sharedDir.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        for ( File file : files )
+        {
+            if ( file.isFile() && !sharedFiles.containsKey( file.getName() ) && file.lastModified() < expiry )
+            {
+                Log.getLog().debug( "Removing unused " + file );
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Stop the writer threads. Resources which have not been flushed are abandoned.
+     */
+    public synchronized void close()
+    {
+        if ( writerPool != null )
+        {
+            writerPool.shutdownNow();
+            writerPool = null;
+        }
+        pendingWrites.clear();
+        outputDirs.clear();
+        writtenFiles.clear();
+        sharedFiles.clear();
+        outputRoot = null;
+    }
+
+    /**
+     * Get the pool writing the resources. When the queue is full the caller writes the resource itself, which keeps
+     * the memory held by queued writes bounded.
+     *
+     * @return The writer thread pool
+     */
+    private synchronized ExecutorService getWriterPool()
+    {
+        if ( writerPool == null )
+        {
+            ThreadPoolExecutor pool =
+                new ThreadPoolExecutor( WRITER_THREADS, WRITER_THREADS, 30, TimeUnit.SECONDS,
+                                        new ArrayBlockingQueue<Runnable>( MAX_QUEUED_WRITES ),
+                                        new WriterThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy() );
+            pool.allowCoreThreadTimeOut( true );
+            writerPool = pool;
+        }
+        return writerPool;
+    }
+
+    /**
+     * Generate the content of a resource into a temporary file next to its file, and replace the file with it unless
+     * the file already has the same content. The file is replaced rather than overwritten, as it may be a link to a
+     * shared file.
+     *
+     * @param model Model to generate the content from
+     * @param generator Generates the content
      * @param file File location to write or overwrite. Must not be a directory.
-     * @throws IOException If the file exists and is a directory, or if the file does not exist but cannot be created,
-     *             or cannot be opened for any other reason.
+     * @return The number of bytes written, 0 if the file was left untouched
+     * @throws IOException If the file is a directory, can't be created, or the content can't be generated
      */
-    private static void writeStringToFile( String content, File file )
+    private long write( Model model, MetaInfGenerator generator, File file )
         throws IOException
     {
         if ( file.isDirectory() )
@@ -108,48 +728,119 @@ public class MetaInfWriter
         }
 
         File dirname = file.getParentFile();
-        dirname.mkdirs();
+        if ( !createDirectories( dirname ) )
+        {
+            throw new IOException( "Couldn't create " + dirname );
+        }
+        File tmpFile = File.createTempFile( file.getName(), ".tmp", dirname );
 
-        FileWriter writer = null;
+        MessageDigest digest = ChecksumUtil.newSha1Digest();
+        OutputStream out = null;
         try
         {
-            writer = new FileWriter( file );
-            writer.write( content );
+            out = new BufferedOutputStream( new DigestOutputStream( new FileOutputStream( tmpFile ), digest ) );
+            generator.generateContent( model, out );
+            out.flush();
+        }
+        catch ( IOException e )
+        {
+            IOUtil.close( out );
+            tmpFile.delete();
+            throw new IOException( "Couldn't write " + generator.getDescription(), e );
         }
         finally
         {
-            if ( writer != null )
-            {
-                writer.close();
-            }
+            IOUtil.close( out );
+        }
+
+        if ( isUnchanged( file, tmpFile.length(), ChecksumUtil.toHex( digest.digest() ) ) )
+        {
+            tmpFile.delete();
+            unchangedFiles.incrementAndGet();
+            return 0;
+        }
+        file.delete();
+        if ( !tmpFile.renameTo( file ) )
+        {
+            tmpFile.delete();
+            throw new IOException( "Couldn't rename " + tmpFile + " to " + file );
+        }
+        return file.length();
+    }
+
+    /**
+     * Whether a file exists with the given content
+     *
+     * @param file The file
+     * @param length The length of the content
+     * @param sha1 The checksum of the content
+     * @return true if the file has the same length and checksum
+     */
+    private static boolean isUnchanged( File file, long length, String sha1 )
+    {
+        if ( !file.isFile() || file.length() != length )
+        {
+            return false;
+        }
+        try
+        {
+            return sha1.equals( ChecksumUtil.sha1( file ) );
+        }
+        catch ( IOException e )
+        {
+            Log.getLog().debug( "Couldn't read " + file + ", replacing it: " + e );
+            return false;
         }
     }
 
-    private static class TempDirectory
+    /**
+     * A resource being written in the background
+     */
+    private static class PendingWrite
     {
-        private static final File tmpdir = new File( System.getProperty( "java.io.tmpdir" ) );
+        private final String description;
+
+        private final String projectId;
 
-        private static final SecureRandom random = new SecureRandom();
+        private final Future<?> write;
 
-        /**
-         * Create a random directory in the temp directory using prefix as the start of the new directory name.
-         * 
-         * @param prefix The start String of the random directory basename
-         * @return File representing the new directory
-         */
-        static File generateDir( String prefix )
+        PendingWrite( String description, String projectId, Future<?> write )
         {
-            long suffix = random.nextLong();
-            if ( suffix == Long.MIN_VALUE )
-            {
-                // Long.MIN_VALUE will not be changed by Math.abs
-                suffix = 0;
-            }
-            else
-            {
-                suffix = Math.abs( suffix );
-            }
-            return new File( tmpdir, prefix + String.valueOf( suffix ) );
+            this.description = description;
+            this.projectId = projectId;
+            this.write = write;
+        }
+
+        String getDescription()
+        {
+            return description;
+        }
+
+        String getProjectId()
+        {
+            return projectId;
+        }
+
+        Future<?> getWrite()
+        {
+            return write;
+        }
+    }
+
+    /**
+     * Creates named daemon threads for the writer pool
+     */
+    private static class WriterThreadFactory
+        implements ThreadFactory
+    {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, "mvndepext-writer-" + threadCount.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
         }
     }
 }
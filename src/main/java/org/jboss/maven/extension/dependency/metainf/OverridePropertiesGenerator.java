@@ -16,10 +16,13 @@
 package org.jboss.maven.extension.dependency.metainf;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.apache.maven.model.Model;
+import org.codehaus.plexus.util.WriterFactory;
 
 public class OverridePropertiesGenerator
     implements MetaInfGenerator
@@ -34,22 +37,22 @@ public class OverridePropertiesGenerator
         this.overrides = overrides;
     }
 
+    /**
+     * Write a line per override in the format key=value, in UTF-8
+     */
     @Override
-    public String generateContent( Model model )
+    public void generateContent( Model model, OutputStream out )
         throws IOException
     {
-        StringBuilder content = new StringBuilder();
-
+        Writer writer = WriterFactory.newWriter( out, WriterFactory.UTF_8 );
         for ( Entry<String, String> override : overrides.entrySet() )
         {
-            // Add a line per entry in the format of key=value\n
-            content.append( override.getKey() );
-            content.append( "=" );
-            content.append( override.getValue() );
-            content.append( "\n" );
+            writer.write( override.getKey() );
+            writer.write( '=' );
+            writer.write( String.valueOf( override.getValue() ) );
+            writer.write( '\n' );
         }
-
-        return content.toString();
+        writer.flush();
     }
 
     @Override
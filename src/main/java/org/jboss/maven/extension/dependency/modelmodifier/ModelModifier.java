@@ -17,9 +17,11 @@ package org.jboss.maven.extension.dependency.modelmodifier;
 
 import org.apache.maven.MavenExecutionException;
 import org.apache.maven.model.Model;
+import org.jboss.maven.extension.dependency.util.ExtensionConfiguration;
 
 /**
- * Interface for classes that modify a built model in some way
+ * Interface for classes that modify a built model in some way. A modifier is created for each session, so it may keep
+ * state for the length of the session, but must allow the models of several projects to be modified concurrently.
  */
 public interface ModelModifier
 {
@@ -27,9 +29,12 @@ public interface ModelModifier
      * Possibly updates a model in some way (may do nothing).
      *
      * @param model the Model to be modified
+     * @param configuration the configuration of the current session
+     * @param reactorProjects the projects in the reactor of the current session
      * @return true if the model changed
      */
-    public boolean updateModel( Model model ) throws MavenExecutionException;
+    public boolean updateModel( Model model, ExtensionConfiguration configuration, ReactorProjects reactorProjects )
+        throws MavenExecutionException;
 
     /**
      * Get simple name of this modifier
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.modelmodifier;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.project.MavenProject;
+
+/**
+ * The groupId:artifactId of each project in the reactor of a session. Several projects with the same groupId and
+ * artifactId are recorded once.
+ */
+public class ReactorProjects
+{
+    private final Map<String, Set<String>> artifactIdsByGroup = new HashMap<String, Set<String>>();
+
+    private final int size;
+
+    /**
+     * @param projects The projects in the reactor
+     */
+    public ReactorProjects( List<MavenProject> projects )
+    {
+        int count = 0;
+        for ( MavenProject project : projects )
+        {
+            Set<String> artifactIds = artifactIdsByGroup.get( project.getGroupId() );
+            if ( artifactIds == null )
+            {
+                artifactIds = new HashSet<String>();
+                artifactIdsByGroup.put( project.getGroupId(), artifactIds );
+            }
+            if ( artifactIds.add( project.getArtifactId() ) )
+            {
+                count++;
+            }
+        }
+        this.size = count;
+    }
+
+    /**
+     * Check whether a project is in the reactor
+     *
+     * @param groupId The groupId of the project
+     * @param artifactId The artifactId of the project
+     * @return true if a project with the given groupId and artifactId is in the reactor
+     */
+    public boolean contains( String groupId, String artifactId )
+    {
+        Set<String> artifactIds = artifactIdsByGroup.get( groupId );
+        return artifactIds != null && artifactIds.contains( artifactId );
+    }
+
+    /**
+     * Check whether a project is in the reactor
+     *
+     * @param groupIdArtifactId The groupId:artifactId of the project
+     * @return true if a project with the given groupId and artifactId is in the reactor
+     */
+    public boolean contains( String groupIdArtifactId )
+    {
+        int separator = groupIdArtifactId.indexOf( ':' );
+        return separator >= 0
+            && contains( groupIdArtifactId.substring( 0, separator ), groupIdArtifactId.substring( separator + 1 ) );
+    }
+
+    /**
+     * @return The number of distinct groupId:artifactId in the reactor
+     */
+    public int size()
+    {
+        return size;
+    }
+}
@@ -16,9 +16,11 @@
 package org.jboss.maven.extension.dependency.modelmodifier;
 
 import org.apache.maven.execution.MavenSession;
+import org.jboss.maven.extension.dependency.util.ExtensionConfiguration;
 
 /**
- * Interface for classes that modify a session in some way
+ * Interface for classes that modify a session in some way. A modifier is created for each session, so it may keep
+ * state for the length of the session.
  */
 public interface SessionModifier
 {
@@ -26,9 +28,10 @@ public interface SessionModifier
      * Possibly updates a session in some way (may do nothing).
      *
      * @param session the Session to be modified
+     * @param configuration the configuration of the session
      * @return true if the session changed
      */
-    public boolean updateSession( MavenSession session );
+    public boolean updateSession( MavenSession session, ExtensionConfiguration configuration );
 
     /**
      * Get simple name of this modifier
@@ -21,6 +21,7 @@ import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.building.ModelBuildingException;
 import org.jboss.maven.extension.dependency.modelmodifier.SessionModifier;
 import org.jboss.maven.extension.dependency.resolver.EffectiveModelBuilder;
+import org.jboss.maven.extension.dependency.util.ExtensionConfiguration;
 import org.jboss.maven.extension.dependency.util.Log;
 import org.jboss.maven.extension.dependency.util.MavenUtil;
 import org.sonatype.aether.resolution.ArtifactDescriptorException;
@@ -42,17 +43,30 @@ public class PropertyMappingOverrider
      * information. <br />
      * ex: -DpropertyManagement:org.foo:bar-property-mgmt:1.0
      */
-    private static final String PROPERTY_MANAGEMENT_POM_PROPERTY = "propertyManagement";
+    public static final String PROPERTY_MANAGEMENT_POM_PROPERTY = "propertyManagement";
+
+    /**
+     * Resolves the remote poms of the session
+     */
+    private final EffectiveModelBuilder modelBuilder;
 
     /**
      * Cache for override properties. Null until getVersionOverrides() is called.
      */
     private Properties propertyMappingOverrides;
 
+    /**
+     * @param modelBuilder Resolves the remote poms of the session
+     */
+    public PropertyMappingOverrider( EffectiveModelBuilder modelBuilder )
+    {
+        this.modelBuilder = modelBuilder;
+    }
+
     @Override
-    public boolean updateSession( MavenSession model )
+    public boolean updateSession( MavenSession model, ExtensionConfiguration configuration )
     {
-        Properties versionOverrides = getPropertyOverrides();
+        Properties versionOverrides = getPropertyOverrides( configuration );
 
         if ( versionOverrides.size() == 0 )
         {
@@ -83,13 +97,13 @@ public class PropertyMappingOverrider
     /**
      * Get the set of versions which will be used to override local property versions.
      */
-    private Properties getPropertyOverrides()
+    private Properties getPropertyOverrides( ExtensionConfiguration configuration )
     {
         if ( propertyMappingOverrides == null )
         {
             propertyMappingOverrides = new Properties();
 
-            Properties remotePropertyOverrides = loadRemotePropertyMappingOverrides();
+            Properties remotePropertyOverrides = loadRemotePropertyMappingOverrides( configuration );
             propertyMappingOverrides.putAll( remotePropertyOverrides );
         }
         return propertyMappingOverrides;
@@ -101,10 +115,9 @@ public class PropertyMappingOverrider
      * @return Map between the GA of the plugin and the version of the plugin. If the system property is not set,
      *         returns an empty map.
      */
-    private static Properties loadRemotePropertyMappingOverrides()
+    private Properties loadRemotePropertyMappingOverrides( ExtensionConfiguration configuration )
     {
-        Properties systemProperties = System.getProperties();
-        String pluginMgmtCSV = systemProperties.getProperty( PROPERTY_MANAGEMENT_POM_PROPERTY );
+        String pluginMgmtCSV = configuration.getProperty( PROPERTY_MANAGEMENT_POM_PROPERTY );
 
         Properties versionOverrides = new Properties();
 
@@ -127,8 +140,7 @@ public class PropertyMappingOverrider
             }
             try
             {
-                EffectiveModelBuilder resolver = EffectiveModelBuilder.getInstance();
-                versionOverrides.putAll( resolver.getRemotePropertyMappingOverrides( nextGAV ) );
+                versionOverrides.putAll( modelBuilder.getRemotePropertyMappingOverrides( nextGAV ) );
             }
             catch ( ArtifactResolutionException e )
             {
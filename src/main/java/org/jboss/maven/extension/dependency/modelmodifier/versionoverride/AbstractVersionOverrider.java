@@ -15,13 +15,20 @@
  */
 package org.jboss.maven.extension.dependency.modelmodifier.versionoverride;
 
-import java.io.IOException;
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import org.apache.maven.MavenExecutionException;
 import org.apache.maven.model.Model;
 import org.jboss.maven.extension.dependency.metainf.MetaInfWriter;
 import org.jboss.maven.extension.dependency.metainf.OverridePropertiesGenerator;
 import org.jboss.maven.extension.dependency.modelmodifier.ModelModifier;
+import org.jboss.maven.extension.dependency.util.ExtensionConfiguration;
 import org.jboss.maven.extension.dependency.util.Log;
 
 /**
@@ -38,22 +45,113 @@ public abstract class AbstractVersionOverrider
     protected static final String GAV_SEPERATOR = ":";
 
     /**
-     * Writes String/String override maps to .properties format
+     * Writes the resources of the session
+     */
+    private final MetaInfWriter metaInfWriter;
+
+    /**
+     * @param metaInfWriter Writes the resources of the session
+     */
+    protected AbstractVersionOverrider( MetaInfWriter metaInfWriter )
+    {
+        this.metaInfWriter = metaInfWriter;
+    }
+
+    /**
+     * Writes String/String override maps to .properties format. The map is written in the background, so it must not
+     * be modified afterwards.
      * 
      * @param model Model whose build to add the written file to
      * @param overrideName Primary part of the written file name
      * @param overrides Overrides to write as the file content
      */
-    protected static void writeOverrideMap( Model model, String overrideName, Map<String, String> overrides )
+    protected void writeOverrideMap( Model model, String overrideName, Map<String, String> overrides )
+    {
+        metaInfWriter.writeSharedResource( model, new OverridePropertiesGenerator( overrides, overrideName ) );
+    }
+
+    /**
+     * Read the version overrides from the file named by a property
+     *
+     * @param configuration The configuration of the session
+     * @param fileProperty The name of the property which holds the path of the file, relative to the execution root
+     * @param dependencyOverrides Whether the file holds dependency overrides, which may be module specific or patterns
+     * @return The overrides in the file, or an empty map if the property is not set
+     * @throws MavenExecutionException If the file can't be read or has an invalid line
+     */
+    protected static Map<String, String> loadOverridesFile( ExtensionConfiguration configuration, String fileProperty,
+                                                            boolean dependencyOverrides )
+        throws MavenExecutionException
+    {
+        File file = configuration.getFileProperty( fileProperty );
+        if ( file == null )
+        {
+            return Collections.emptyMap();
+        }
+        Map<String, String> versionOverrides = VersionOverridesFile.read( file, dependencyOverrides );
+        Log.getLog().debug( "Read " + versionOverrides.size() + " version overrides from " + file );
+        return versionOverrides;
+    }
+
+    /**
+     * Start resolving the remote poms this overrider needs in the background, so they can be ready by the time the
+     * projects have been read. Failures are reported when the overrides are used.
+     *
+     * @param configuration The configuration of the session
+     */
+    public abstract void prefetchRemoteOverrides( ExtensionConfiguration configuration );
+
+    /**
+     * Merge the override maps of several remote poms which are being resolved concurrently. The poms are given in
+     * order of priority, so the versions of the first pom in the list overwrite those of any later pom.
+     *
+     * @param remoteOverrides The pending override maps, in order of priority
+     * @return The merged override map
+     * @throws MavenExecutionException If any of the remote poms could not be resolved
+     */
+    protected static Map<String, String> mergeRemoteOverrides( List<Future<Map<String, String>>> remoteOverrides )
+        throws MavenExecutionException
     {
-        try
+        Map<String, String> versionOverrides = new HashMap<String, String>();
+
+        // Iterate in reverse order so that the first GAV in the list overwrites the last
+        for ( int i = ( remoteOverrides.size() - 1 ); i > -1; --i )
         {
-            MetaInfWriter.writeResource( model, new OverridePropertiesGenerator(overrides, overrideName) );
+            try
+            {
+                versionOverrides.putAll( remoteOverrides.get( i ).get() );
+            }
+            catch ( ExecutionException e )
+            {
+                cancelAll( remoteOverrides );
+                Throwable cause = e.getCause();
+                if ( cause instanceof RuntimeException )
+                {
+                    throw (RuntimeException) cause;
+                }
+                if ( cause instanceof Error )
+                {
+                    throw (Error) cause;
+                }
+                Log.getLog().error( "Unable to resolve remote pom: " + cause );
+                throw new MavenExecutionException( "Unable to resolve remote pom", cause );
+            }
+            catch ( InterruptedException e )
+            {
+                cancelAll( remoteOverrides );
+                Thread.currentThread().interrupt();
+                throw new MavenExecutionException( "Interrupted while resolving remote pom", e );
+            }
         }
-        catch ( IOException e )
+
+        return versionOverrides;
+    }
+
+    private static void cancelAll( List<Future<Map<String, String>>> remoteOverrides )
+    {
+        for ( Future<Map<String, String>> remoteOverride : remoteOverrides )
         {
-            Log.getLog().error( "Could not write " + overrideName + " override map to file due to " + e );
-            Log.logAllCauses( e.getCause() );
+            remoteOverride.cancel( true );
         }
     }
 
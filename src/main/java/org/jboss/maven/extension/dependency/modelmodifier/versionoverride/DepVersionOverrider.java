@@ -15,25 +15,24 @@
  */
 package org.jboss.maven.extension.dependency.modelmodifier.versionoverride;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
+import java.util.concurrent.Future;
 
 import org.apache.maven.MavenExecutionException;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.DependencyManagement;
 import org.apache.maven.model.Model;
-import org.apache.maven.model.building.ModelBuildingException;
+import org.jboss.maven.extension.dependency.metainf.MetaInfWriter;
+import org.jboss.maven.extension.dependency.modelmodifier.ReactorProjects;
 import org.jboss.maven.extension.dependency.resolver.EffectiveModelBuilder;
+import org.jboss.maven.extension.dependency.util.ExtensionConfiguration;
 import org.jboss.maven.extension.dependency.util.Log;
 import org.jboss.maven.extension.dependency.util.MavenUtil;
-import org.jboss.maven.extension.dependency.util.VersionPropertyReader;
-import org.sonatype.aether.resolution.ArtifactDescriptorException;
-import org.sonatype.aether.resolution.ArtifactResolutionException;
 
 /**
  * Overrides dependency versions in a model
@@ -45,7 +44,14 @@ public class DepVersionOverrider
      * The String that needs to be prepended a system property to make it a version override. <br />
      * ex: -Dversion:junit:junit=4.10
      */
-    private static final String DEPENDENCY_VERSION_OVERRIDE_PREFIX = "version:";
+    public static final String DEPENDENCY_VERSION_OVERRIDE_PREFIX = "version:";
+
+    /**
+     * The name of the property which contains the path of a file of dependency version overrides, one
+     * "groupId:artifactId[@moduleGroupId:moduleArtifactId]=version" per line. <br />
+     * ex: -DversionOverridesFile=overrides.properties
+     */
+    public static final String VERSION_OVERRIDES_FILE_PROPERTY = "versionOverridesFile";
 
     /**
      * The name of the property that specifies whether or not to override transitive dependencies in the build. This
@@ -59,43 +65,75 @@ public class DepVersionOverrider
      * information. <br />
      * ex: -DdependencyManagement:org.foo:bar-dep-mgmt:1.0
      */
-    private static final String DEPENDENCY_MANAGEMENT_POM_PROPERTY = "dependencyManagement";
+    public static final String DEPENDENCY_MANAGEMENT_POM_PROPERTY = "dependencyManagement";
 
     /**
      * A short description of the thing being overridden
      */
     private static final String OVERRIDE_NAME = "dependency";
 
+    /**
+     * Resolves the remote poms of the session
+     */
+    private final EffectiveModelBuilder modelBuilder;
+
     /**
      * Cache for override properties. Null until getVersionOverrides() is called.
      */
     private Map<String, String> dependencyVersionOverrides;
 
     /**
-     * The set of projects currently in the reactor. The versions of these projects should not be overridden.
+     * The reactor the global overrides were indexed for. The versions of the reactor projects should not be
+     * overridden.
+     */
+    private ReactorProjects indexedReactorProjects;
+
+    /**
+     * The overrides which apply to every module, without the reactor projects. Null until indexVersionOverrides() is
+     * called.
+     */
+    private OverrideTable globalVersionOverrides;
+
+    /**
+     * The module specific overrides keyed by module groupId:artifactId, then by the groupId:artifactId of the
+     * dependency. An empty version removes the global override of the dependency from the module.
      */
-    private Set<String> reactorProjects;
+    private Map<String, Map<String, String>> moduleVersionOverrides;
+
+    /**
+     * The overrides which apply to every module and match several dependencies, or null if there are none
+     */
+    private OverridePatterns versionOverridePatterns;
+
+    /**
+     * @param modelBuilder Resolves the remote poms of the session
+     * @param metaInfWriter Writes the resources of the session
+     */
+    public DepVersionOverrider( EffectiveModelBuilder modelBuilder, MetaInfWriter metaInfWriter )
+    {
+        super( metaInfWriter );
+        this.modelBuilder = modelBuilder;
+    }
 
     /**
      * Modify model's dependency management and direct dependencies.
      */
     @Override
-    public boolean updateModel( Model model ) throws MavenExecutionException
+    public boolean updateModel( Model model, ExtensionConfiguration configuration, ReactorProjects reactorProjects )
+        throws MavenExecutionException
     {
-        Map<String, String> versionOverrides = getVersionOverrides();
-        if ( versionOverrides.size() == 0 )
+        if ( !prepareVersionOverrides( configuration, reactorProjects ) )
         {
             return false;
         }
 
-        versionOverrides = removeReactorGAs( versionOverrides );
-
         String projectGA = model.getGroupId() + ":" + model.getArtifactId();
 
-        versionOverrides = applyModuleVersionOverrides( projectGA, versionOverrides );
+        OverrideTable overrideTable = getModuleVersionOverrides( projectGA );
+        Map<String, String> moduleOverrides = moduleVersionOverrides.get( projectGA );
 
         // Add/override a property to the build for each override
-        addVersionOverrideProperties( versionOverrides, model.getProperties() );
+        addVersionOverrideProperties( overrideTable, model.getProperties(), configuration );
 
         // If the model doesn't have any Dependency Management set by default, create one for it
         DependencyManagement dependencyManagement = model.getDependencyManagement();
@@ -107,25 +145,28 @@ public class DepVersionOverrider
         }
 
         // Apply overrides to project dependency management
+        BitSet matchedOverrides = new BitSet( overrideTable.capacity() );
         List<Dependency> dependencies = dependencyManagement.getDependencies();
-        Map<String, String> nonMatchingVersionOverrides = applyOverrides( dependencies, versionOverrides );
-        if ( overrideTransitive() )
+        boolean modelChanged = applyOverrides( dependencies, overrideTable, moduleOverrides, matchedOverrides );
+        if ( overrideTransitive( configuration ) )
         {
             // Add dependencies to Dependency Management which did not match any existing dependency
-            for ( String groupIdArtifactId : nonMatchingVersionOverrides.keySet() )
+            for ( OverrideTable.VersionOverride override : overrideTable.overrides() )
             {
-                String[] groupIdArtifactIdParts = groupIdArtifactId.split( ":" );
+                if ( matchedOverrides.get( override.getIndex() ) )
+                {
+                    continue;
+                }
 
                 Dependency newDependency = new Dependency();
-                newDependency.setGroupId( groupIdArtifactIdParts[0] );
-                newDependency.setArtifactId( groupIdArtifactIdParts[1] );
-
-                String artifactVersion = nonMatchingVersionOverrides.get( groupIdArtifactId );
-                newDependency.setVersion( artifactVersion );
+                newDependency.setGroupId( override.getGroupId() );
+                newDependency.setArtifactId( override.getArtifactId() );
+                newDependency.setVersion( override.getValue() );
 
                 dependencyManagement.getDependencies().add( newDependency );
-                Log.getLog().debug( "New entry added to <DependencyManagement/> - " + groupIdArtifactId + ":" +
-                                        artifactVersion );
+                modelChanged = true;
+                Log.getLog().debug( "New entry added to <DependencyManagement/> - " + override.getKey() + ":" +
+                                        override.getValue() );
             }
         }
         else
@@ -135,23 +176,22 @@ public class DepVersionOverrider
 
         // Apply overrides to project direct dependencies
         List<Dependency> projectDependencies = model.getDependencies();
-        applyOverrides( projectDependencies, versionOverrides );
+        if ( applyOverrides( projectDependencies, overrideTable, moduleOverrides, matchedOverrides ) )
+        {
+            modelChanged = true;
+        }
 
         // Include the overrides in the built files for repeatability
-        writeOverrideMap( model, getName(), versionOverrides );
-
-        // Assuming the Model changed since overrides were given
-        return true;
-    }
-
-    private Set<String> getReactorProjects()
-    {
-        if ( reactorProjects == null || reactorProjects.size() == 0 )
+        if ( versionOverridePatterns != null )
+        {
+            writeOverrideMap( model, getName(), overrideTable.overlay( versionOverridePatterns.getRules() ) );
+        }
+        else
         {
-            String[] reactorProjectGAs = System.getProperty( "reactorProjectGAs" ).split( "," );
-            reactorProjects = new HashSet<String>( Arrays.asList( reactorProjectGAs ) );
+            writeOverrideMap( model, getName(), overrideTable );
         }
-        return reactorProjects;
+
+        return modelChanged;
     }
 
     @Override
@@ -166,30 +206,56 @@ public class DepVersionOverrider
      *
      * @return
      */
-    private boolean overrideTransitive()
+    private boolean overrideTransitive( ExtensionConfiguration configuration )
     {
-        String overrideTransitive = System.getProperties().getProperty( OVERRIDE_TRANSITIVE, "true" );
+        String overrideTransitive = configuration.getProperty( OVERRIDE_TRANSITIVE, "true" );
         return overrideTransitive.equals( "true" );
     }
 
+    /**
+     * Load the version overrides once, and index them when the reactor changes. Projects may be modified by several
+     * threads, so the cached overrides are only replaced while holding the lock; they are read without it once this
+     * method has returned, and are not changed again for the same reactor.
+     *
+     * @return Whether there are any version overrides
+     * @throws MavenExecutionException If the overrides can't be loaded, or an override pattern is not valid
+     */
+    private synchronized boolean prepareVersionOverrides( ExtensionConfiguration configuration,
+                                                          ReactorProjects reactorProjects )
+        throws MavenExecutionException
+    {
+        Map<String, String> versionOverrides = getVersionOverrides( configuration );
+        if ( versionOverrides.size() == 0 )
+        {
+            return false;
+        }
+        indexVersionOverrides( versionOverrides, reactorProjects );
+        return true;
+    }
+
     /**
      * Get the set of versions which will be used to override local dependency versions. This is the full set of version
-     * overrides from system properties and remote poms.
+     * overrides from system properties, the overrides file and remote poms.
      *
      * The format of the key is "groupId:artifactId[@moduleGroupId:moduleArtifactId]"
      * The value is the version string
      */
-    private Map<String, String> getVersionOverrides() throws MavenExecutionException
+    private Map<String, String> getVersionOverrides( ExtensionConfiguration configuration )
+        throws MavenExecutionException
     {
         if ( dependencyVersionOverrides == null )
         {
             dependencyVersionOverrides = new HashMap<String, String>();
 
-            Map<String, String> remoteDepOverrides = loadRemoteDepVersionOverrides();
+            Map<String, String> remoteDepOverrides = loadRemoteDepVersionOverrides( configuration );
             dependencyVersionOverrides.putAll( remoteDepOverrides );
 
+            Map<String, String> fileDepOverrides =
+                loadOverridesFile( configuration, VERSION_OVERRIDES_FILE_PROPERTY, true );
+            dependencyVersionOverrides.putAll( fileDepOverrides );
+
             Map<String, String> propDepOverrides =
-                VersionPropertyReader.getPropertiesByPrefix( DEPENDENCY_VERSION_OVERRIDE_PREFIX );
+                configuration.getPropertiesByPrefix( DEPENDENCY_VERSION_OVERRIDE_PREFIX );
             dependencyVersionOverrides.putAll( propDepOverrides );
 
         }
@@ -197,74 +263,114 @@ public class DepVersionOverrider
     }
 
     /**
-     * Remove version overrides which refer to projects in the current reactor.
-     * Projects in the reactor include things like inter-module dependencies
-     * which should never be overridden.
+     * Split the full set of version overrides into the global overrides and the module specific ones, once per
+     * reactor. Global overrides which refer to projects in the reactor are dropped, since things like inter-module
+     * dependencies should never be overridden.
      *
-     * @param versionOverrides
-     * @return A new Map with the reactor GAs removed.
+     * @param versionOverrides The full set of version overrides, both global and module specific
+     * @param reactorProjects The projects in the reactor
+     * @throws MavenExecutionException If an override pattern is not valid
      */
-    private Map<String, String> removeReactorGAs( Map<String, String> versionOverrides )
+    private void indexVersionOverrides( Map<String, String> versionOverrides, ReactorProjects reactorProjects )
+        throws MavenExecutionException
     {
-        Map<String, String> reducedVersionOverrides = new HashMap<String, String>( versionOverrides );
-        Set<String> reactorProjects = getReactorProjects();
-        for ( String reactorGA : reactorProjects )
+        if ( reactorProjects == indexedReactorProjects )
         {
-            reducedVersionOverrides.remove( reactorGA );
+            return;
         }
-        return reducedVersionOverrides;
+
+        Map<String, String> globalOverrides = new HashMap<String, String>();
+        Map<String, String> patternOverrides = new HashMap<String, String>();
+        Map<String, Map<String, String>> moduleOverrides = new HashMap<String, Map<String, String>>();
+        for ( Map.Entry<String, String> override : versionOverrides.entrySet() )
+        {
+            String currentKey = override.getKey();
+            int moduleSeparator = currentKey.indexOf( '@' );
+            if ( moduleSeparator < 0 )
+            {
+                if ( OverridePatterns.isPattern( currentKey ) )
+                {
+                    patternOverrides.put( currentKey, override.getValue() );
+                }
+                else if ( !reactorProjects.contains( currentKey ) )
+                {
+                    globalOverrides.put( currentKey, override.getValue() );
+                }
+                continue;
+            }
+            if ( OverridePatterns.isPattern( currentKey ) )
+            {
+                Log.getLog().warn( "Module specific override patterns are not supported, ignoring " + currentKey );
+                continue;
+            }
+
+            String artifactGA = currentKey.substring( 0, moduleSeparator );
+            String moduleGA = currentKey.substring( moduleSeparator + 1 );
+            Map<String, String> overrides = moduleOverrides.get( moduleGA );
+            if ( overrides == null )
+            {
+                overrides = new HashMap<String, String>();
+                moduleOverrides.put( moduleGA, overrides );
+            }
+            overrides.put( artifactGA, override.getValue() == null ? "" : override.getValue() );
+        }
+
+        try
+        {
+            versionOverridePatterns = patternOverrides.isEmpty() ? null : new OverridePatterns( patternOverrides );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new MavenExecutionException( e.getMessage(), e );
+        }
+        globalVersionOverrides = new OverrideTable( globalOverrides );
+        moduleVersionOverrides = moduleOverrides;
+        indexedReactorProjects = reactorProjects;
     }
 
     /**
-     * Remove module overrides which do not apply to the current module. Searches the full list of version overrides
-     * for any keys which contain the '@' symbol.  Removes these from the version overrides list, and add them back
-     * without the '@' symbol only if they apply to the current module.
+     * Get the overrides which apply to a module: the global overrides, changed by the overrides specific to the
+     * module. The module specific overrides are layered over the shared global table rather than copying it.
      *
-     * @param versionOverides The full list of version overrides, both global and module specific
-     * @return The map of global and module specific overrides which apply to the given module
+     * @param projectGA The groupId:artifactId of the module
+     * @return The global and module specific overrides which apply to the given module
      */
-    private Map<String, String> applyModuleVersionOverrides( String projectGA, Map<String, String> versionOverrides )
+    private OverrideTable getModuleVersionOverrides( String projectGA )
     {
-        Map<String, String> moduleVersionOverrides = new HashMap<String, String>( versionOverrides );
-        for ( String currentKey : versionOverrides.keySet() )
+        Map<String, String> moduleOverrides = moduleVersionOverrides.get( projectGA );
+        if ( moduleOverrides == null )
+        {
+            return globalVersionOverrides;
+        }
+
+        if ( Log.getLog().isDebugEnabled() )
         {
-            if ( currentKey.contains( "@" ) )
+            for ( String moduleOverride : moduleOverrides.values() )
             {
-                moduleVersionOverrides.remove( currentKey );
-                String[] artifactAndModule = currentKey.split( "@" );
-                String artifactGA = artifactAndModule[0];
-                String moduleGA = artifactAndModule[1];
-                if ( moduleGA.equals( projectGA ) )
+                if ( moduleOverride.length() == 0 )
                 {
-                    if ( versionOverrides.get( currentKey) != null && versionOverrides.get( currentKey).length() > 0)
-                    {
-                        moduleVersionOverrides.put( artifactGA, versionOverrides.get( currentKey ) );
-                    }
-                    else
-                    {
-                        moduleVersionOverrides.remove(artifactGA);
-                        Log.getLog().debug("Ignoring module dependency override for " + moduleGA);
-                    }
+                    Log.getLog().debug( "Ignoring module dependency override for " + projectGA );
                 }
             }
         }
-        return moduleVersionOverrides;
+        return globalVersionOverrides.overlay( moduleOverrides );
     }
 
     /***
      * Add properties to the build which match the version overrides.
      * The property names are in the format
      */
-    private void addVersionOverrideProperties( Map<String, String> overrides, Properties props )
+    private void addVersionOverrideProperties( Map<String, String> overrides, Properties props,
+                                               ExtensionConfiguration configuration )
     {
-        String propPrefix = getVersionPropertyPrefix();
-        String gaSeparator = getGASeparator();
-        String propSuffix = getVersionPropertySuffix();
+        String propPrefix = getVersionPropertyPrefix( configuration );
+        String gaSeparator = getGASeparator( configuration );
+        String propSuffix = getVersionPropertySuffix( configuration );
 
-        for (String currentGA : overrides.keySet() )
+        for ( Map.Entry<String, String> override : overrides.entrySet() )
         {
-            String versionPropName = propPrefix + currentGA.replace( ":", gaSeparator ) + propSuffix;
-            props.setProperty( versionPropName, overrides.get( currentGA ) );
+            String versionPropName = propPrefix + override.getKey().replace( ":", gaSeparator ) + propSuffix;
+            props.setProperty( versionPropName, override.getValue() );
         }
     }
 
@@ -272,81 +378,121 @@ public class DepVersionOverrider
      * Get the prefix that should be used for version property names
      * @return The prefix set in the system properties or the defult DEPENDENCY_VERSION_OVERRIDE_PREFIX
      */
-    private String getVersionPropertyPrefix()
+    private String getVersionPropertyPrefix( ExtensionConfiguration configuration )
     {
-        return System.getProperty( "versionPropertyPrefix", DEPENDENCY_VERSION_OVERRIDE_PREFIX);
+        return configuration.getProperty( "versionPropertyPrefix", DEPENDENCY_VERSION_OVERRIDE_PREFIX );
     }
 
     /**
      * Get the groupId/artifactId separator
      * @return The separator set in the system properties, or ":" by default
      */
-    private String getGASeparator()
+    private String getGASeparator( ExtensionConfiguration configuration )
     {
-        return System.getProperty( "versionPropertyGASeparator", ":" );
+        return configuration.getProperty( "versionPropertyGASeparator", ":" );
     }
 
     /**
      * Get the suffix that should be used for version property names
      * @return The suffix set in the system properties or the default empty string
      */
-    private String getVersionPropertySuffix()
+    private String getVersionPropertySuffix( ExtensionConfiguration configuration )
     {
-        return System.getProperty( "versionPropertySuffix", "");
+        return configuration.getProperty( "versionPropertySuffix", "" );
     }
 
     /**
-     * Apply a set of version overrides to a list of dependencies. Return a set of the overrides which were not applied.
+     * Apply a set of version overrides to a list of dependencies, and record which overrides were applied. Dependencies
+     * without an exact override get the version of the most specific override pattern which matches them, if any,
+     * unless a module specific override with an empty version leaves them alone.
      *
      * @param dependencies The list of dependencies
-     * @param overrides The map of dependency version overrides
-     * @return The map of overrides that were not matched in the dependencies
+     * @param overrides The table of dependency version overrides
+     * @param moduleOverrides The module specific overrides included in the table, or null if there are none
+     * @param matchedOverrides Set to the index of each override which was applied to a dependency
+     * @return Whether the version of any dependency changed
      */
-    private static Map<String, String> applyOverrides( List<Dependency> dependencies, Map<String, String> overrides )
+    private boolean applyOverrides( List<Dependency> dependencies, OverrideTable overrides,
+                                    Map<String, String> moduleOverrides, BitSet matchedOverrides )
     {
-        Set<String> excludes = new HashSet<String>();
-        return applyOverrides( dependencies, overrides, excludes );
-    }
-
-    /**
-     * Apply a set of version overrides to a list of dependencies. Return a set of the overrides which were not applied.
-     *
-     * @param dependencies The list of dependencies
-     * @param overrides The map of dependency version overrides
-     * @param excludes A set of GAs to ignore when overridding dep versions
-     * @return The map of overrides that were not matched in the dependencies
-     */
-    private static Map<String, String> applyOverrides( List<Dependency> dependencies, Map<String, String> overrides,
-                                                       Set<String> excludes )
-    {
-        // Duplicate the override map so unused overrides can be easily recorded
-        Map<String, String> unmatchedVersionOverrides = new HashMap<String, String>();
-        unmatchedVersionOverrides.putAll( overrides );
-
-        // Apply matching overrides to dependencies
+        boolean changed = false;
         for ( Dependency dependency : dependencies )
         {
-            String groupIdArtifactId = dependency.getGroupId() + GAV_SEPERATOR + dependency.getArtifactId();
-            if ( overrides.containsKey( groupIdArtifactId ) && !excludes.contains( groupIdArtifactId ) )
+            OverrideTable.VersionOverride override =
+                overrides.find( dependency.getGroupId(), dependency.getArtifactId() );
+            if ( override == null )
             {
-                String oldVersion = dependency.getVersion();
-                String overrideVersion = overrides.get( groupIdArtifactId );
-
-                if (overrideVersion == null || overrideVersion.length() == 0)
+                if ( versionOverridePatterns != null && !isModuleSuppressed( dependency, moduleOverrides )
+                    && applyOverridePattern( dependency ) )
                 {
-                    Log.getLog().warn("Unable to align to an empty version for " + groupIdArtifactId + "; ignoring");
+                    changed = true;
                 }
-                else
+                continue;
+            }
+
+            String overrideVersion = override.getValue();
+            if ( overrideVersion == null || overrideVersion.length() == 0 )
+            {
+                Log.getLog().warn( "Unable to align to an empty version for " + override.getKey() + "; ignoring" );
+            }
+            else
+            {
+                if ( Log.getLog().isDebugEnabled() )
                 {
-                    dependency.setVersion( overrideVersion );
-                    Log.getLog().debug( "Altered dependency " + groupIdArtifactId + " " + oldVersion + "->" +
-                                        overrideVersion );
-                    unmatchedVersionOverrides.remove( groupIdArtifactId );
+                    Log.getLog().debug( "Altered dependency " + override.getKey() + " " + dependency.getVersion() +
+                                            "->" + overrideVersion );
                 }
+                changed |= !overrideVersion.equals( dependency.getVersion() );
+                dependency.setVersion( overrideVersion );
+                matchedOverrides.set( override.getIndex() );
             }
         }
+        return changed;
+    }
 
-        return unmatchedVersionOverrides;
+    /**
+     * Check whether a module specific override with an empty version leaves a dependency alone. Module specific
+     * overrides with a version are found in the override table, so only those without one are left to check.
+     *
+     * @param dependency The dependency, which has no entry in the override table of the module
+     * @param moduleOverrides The module specific overrides, or null if there are none
+     * @return Whether the dependency must not be overridden in this module
+     */
+    private static boolean isModuleSuppressed( Dependency dependency, Map<String, String> moduleOverrides )
+    {
+        return moduleOverrides != null
+            && moduleOverrides.containsKey( dependency.getGroupId() + GAV_SEPERATOR + dependency.getArtifactId() );
+    }
+
+    /**
+     * Apply the most specific override pattern which matches a dependency. Projects in the reactor are never
+     * overridden, and a pattern with an empty version leaves the dependency alone.
+     *
+     * @param dependency The dependency
+     * @return Whether the version of the dependency changed
+     */
+    private boolean applyOverridePattern( Dependency dependency )
+    {
+        String overrideVersion = versionOverridePatterns.match( dependency.getGroupId(), dependency.getArtifactId() );
+        if ( overrideVersion == null || overrideVersion.length() == 0
+            || indexedReactorProjects.contains( dependency.getGroupId(), dependency.getArtifactId() ) )
+        {
+            return false;
+        }
+        boolean changed = !overrideVersion.equals( dependency.getVersion() );
+        if ( Log.getLog().isDebugEnabled() )
+        {
+            Log.getLog().debug( "Altered dependency " + dependency.getGroupId() + ":" + dependency.getArtifactId()
+                                    + " " + dependency.getVersion() + "->" + overrideVersion + " by pattern" );
+        }
+        dependency.setVersion( overrideVersion );
+        return changed;
+    }
+
+    @Override
+    public void prefetchRemoteOverrides( ExtensionConfiguration configuration )
+    {
+        submitRemoteDepVersionOverrides( configuration, false );
     }
 
     /**
@@ -355,51 +501,47 @@ public class DepVersionOverrider
      * @return Map between the GA of the dependency and the version of the dependency. If the property is not set,
      *         returns an empty map
      */
-    private static Map<String, String> loadRemoteDepVersionOverrides() throws MavenExecutionException
+    private Map<String, String> loadRemoteDepVersionOverrides( ExtensionConfiguration configuration )
+        throws MavenExecutionException
+    {
+        return mergeRemoteOverrides( submitRemoteDepVersionOverrides( configuration, true ) );
+    }
+
+    /**
+     * Start resolving the remote poms listed in the dependency management property in the background. Poms which are
+     * already being resolved, for example because they were prefetched, are not resolved again.
+     *
+     * @param configuration The configuration of the session
+     * @param warnInvalid Whether to log a warning for each invalid GAV
+     * @return The pending override maps in order of priority. If the property is not set, returns an empty list.
+     */
+    private List<Future<Map<String, String>>> submitRemoteDepVersionOverrides(
+        ExtensionConfiguration configuration, boolean warnInvalid )
     {
-        Properties systemProperties = System.getProperties();
-        String depMgmtPomCSV = systemProperties.getProperty( DEPENDENCY_MANAGEMENT_POM_PROPERTY );
+        String depMgmtPomCSV = configuration.getProperty( DEPENDENCY_MANAGEMENT_POM_PROPERTY );
 
-        Map<String, String> versionOverrides = new HashMap<String, String>( 0 );
+        List<Future<Map<String, String>>> remoteOverrides = new ArrayList<Future<Map<String, String>>>();
 
         if ( depMgmtPomCSV == null )
         {
-            return versionOverrides;
+            return remoteOverrides;
         }
 
         String[] depMgmtPomGAVs = depMgmtPomCSV.split( "," );
 
-        // Iterate in reverse order so that the first GAV in the list overwrites the last
-        for ( int i = ( depMgmtPomGAVs.length - 1 ); i > -1; --i )
+        for ( String nextGAV : depMgmtPomGAVs )
         {
-            String nextGAV = depMgmtPomGAVs[i];
             if ( !MavenUtil.validGav( nextGAV ) )
             {
-                Log.getLog().warn( "Skipping invalid dependency management GAV: " + nextGAV );
+                if ( warnInvalid )
+                {
+                    Log.getLog().warn( "Skipping invalid dependency management GAV: " + nextGAV );
+                }
                 continue;
             }
-            try
-            {
-                EffectiveModelBuilder resolver = EffectiveModelBuilder.getInstance();
-                versionOverrides.putAll( resolver.getRemoteDependencyVersionOverrides( nextGAV ) );
-            }
-            catch ( ArtifactResolutionException e )
-            {
-                Log.getLog().error( "Unable to resolve remote pom: " + e );
-                throw new MavenExecutionException("Unable to resolve remote pom", e);
-            }
-            catch ( ArtifactDescriptorException e )
-            {
-                Log.getLog().error( "Unable to resolve remote pom: " + e );
-                throw new MavenExecutionException("Unable to resolve remote pom", e);
-            }
-            catch ( ModelBuildingException e )
-            {
-                Log.getLog().error( "Unable to resolve remote pom: " + e );
-                throw new MavenExecutionException("Unable to resolve remote pom", e);
-            }
+            remoteOverrides.add( modelBuilder.submitRemoteDependencyVersionOverrides( nextGAV ) );
         }
 
-        return versionOverrides;
+        return remoteOverrides;
     }
 }
@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.modelmodifier.versionoverride;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Version override rules which match several artifacts, compiled into a trie of groupIds whose nodes hold tries of
+ * artifactIds. A rule is a "groupId:artifactId" in which the groupId, the artifactId or both may end with '*' to match
+ * any suffix, for example "org.hibernate:*" or "org.hibernate*:hibernate-*". A rule with an empty version excludes the
+ * artifacts it matches from the other rules.
+ * <p>
+ * When several rules match an artifact the most specific one wins: an exact groupId beats a groupId prefix and a
+ * longer prefix beats a shorter one, and between rules with the same groupId part the artifactId is compared the same
+ * way. A lookup walks each trie once along the characters of the groupId and artifactId, so its cost does not depend on
+ * the number of rules.
+ */
+class OverridePatterns
+{
+    /**
+     * The character which matches any suffix of a groupId or artifactId
+     */
+    static final char WILDCARD = '*';
+
+    private final Node<Node<String>> groups = new Node<Node<String>>();
+
+    private final Map<String, String> rules = new HashMap<String, String>();
+
+    /**
+     * @param patterns The rules and their versions, keyed by "groupId:artifactId" pattern
+     * @throws IllegalArgumentException If a pattern is not valid
+     */
+    OverridePatterns( Map<String, String> patterns )
+    {
+        for ( Map.Entry<String, String> pattern : patterns.entrySet() )
+        {
+            String key = pattern.getKey();
+            int separator = key.indexOf( AbstractVersionOverrider.GAV_SEPERATOR );
+            if ( separator < 0 || !isValid( key.substring( 0, separator ) )
+                || !isValid( key.substring( separator + 1 ) ) )
+            {
+                throw new IllegalArgumentException( "Invalid version override pattern " + key
+                    + ", a '*' may only end the groupId or artifactId" );
+            }
+
+            Node<String> artifacts = groups.get( key.substring( 0, separator ) );
+            if ( artifacts == null )
+            {
+                artifacts = new Node<String>();
+                groups.set( key.substring( 0, separator ), artifacts );
+            }
+            String version = pattern.getValue() == null ? "" : pattern.getValue();
+            artifacts.set( key.substring( separator + 1 ), version );
+            rules.put( key, version );
+        }
+    }
+
+    /**
+     * @param key A groupId:artifactId, which may be a pattern
+     * @return true if the key contains a wildcard
+     */
+    static boolean isPattern( String key )
+    {
+        return key.indexOf( WILDCARD ) >= 0;
+    }
+
+    private static boolean isValid( String part )
+    {
+        int wildcard = part.indexOf( WILDCARD );
+        return wildcard < 0 || wildcard == part.length() - 1;
+    }
+
+    /**
+     * Find the version of the most specific rule which matches an artifact
+     *
+     * @param groupId The groupId of the artifact
+     * @param artifactId The artifactId of the artifact
+     * @return The version, an empty string if the artifact is excluded, or null if no rule matches
+     */
+    String match( String groupId, String artifactId )
+    {
+        return matchGroup( groups, groupId, 0, artifactId );
+    }
+
+    /**
+     * @return The rules and their versions, keyed by pattern
+     */
+    Map<String, String> getRules()
+    {
+        return rules;
+    }
+
+    /**
+     * Walk down the groupId trie, then try the matching artifactId tries from the deepest node back up
+     */
+    private static String matchGroup( Node<Node<String>> node, String groupId, int index, String artifactId )
+    {
+        if ( index == groupId.length() )
+        {
+            if ( node.exact != null )
+            {
+                String version = matchArtifact( node.exact, artifactId );
+                if ( version != null )
+                {
+                    return version;
+                }
+            }
+        }
+        else
+        {
+            Node<Node<String>> child = node.children.get( groupId.charAt( index ) );
+            if ( child != null )
+            {
+                String version = matchGroup( child, groupId, index + 1, artifactId );
+                if ( version != null )
+                {
+                    return version;
+                }
+            }
+        }
+        return node.prefix == null ? null : matchArtifact( node.prefix, artifactId );
+    }
+
+    private static String matchArtifact( Node<String> root, String artifactId )
+    {
+        String longestPrefix = null;
+        Node<String> node = root;
+        for ( int i = 0; i < artifactId.length(); i++ )
+        {
+            if ( node.prefix != null )
+            {
+                longestPrefix = node.prefix;
+            }
+            node = node.children.get( artifactId.charAt( i ) );
+            if ( node == null )
+            {
+                return longestPrefix;
+            }
+        }
+        if ( node.exact != null )
+        {
+            return node.exact;
+        }
+        return node.prefix != null ? node.prefix : longestPrefix;
+    }
+
+    /**
+     * A trie node, holding the value of the key which ends at the node and of the pattern which has a wildcard there
+     */
+    private static class Node<V>
+    {
+        private final Map<Character, Node<V>> children = new HashMap<Character, Node<V>>( 4 );
+
+        private V exact;
+
+        private V prefix;
+
+        /**
+         * @param key A key, which may end with a wildcard
+         * @return The value stored for the key, or null
+         */
+        V get( String key )
+        {
+            Node<V> node = find( key );
+            return isPrefix( key ) ? node.prefix : node.exact;
+        }
+
+        /**
+         * @param key A key, which may end with a wildcard
+         * @param value The value to store for the key
+         */
+        void set( String key, V value )
+        {
+            Node<V> node = find( key );
+            if ( isPrefix( key ) )
+            {
+                node.prefix = value;
+            }
+            else
+            {
+                node.exact = value;
+            }
+        }
+
+        /**
+         * Get the node of a key without its wildcard, creating it if needed
+         */
+        private Node<V> find( String key )
+        {
+            int length = isPrefix( key ) ? key.length() - 1 : key.length();
+            Node<V> node = this;
+            for ( int i = 0; i < length; i++ )
+            {
+                Node<V> child = node.children.get( key.charAt( i ) );
+                if ( child == null )
+                {
+                    child = new Node<V>();
+                    node.children.put( key.charAt( i ), child );
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        private static boolean isPrefix( String key )
+        {
+            return key.length() > 0 && key.charAt( key.length() - 1 ) == WILDCARD;
+        }
+    }
+}
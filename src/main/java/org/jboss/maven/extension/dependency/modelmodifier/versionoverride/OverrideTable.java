@@ -0,0 +1,403 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.modelmodifier.versionoverride;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable table of version overrides, indexed by groupId and then artifactId so that it can be probed with the
+ * fields of a dependency or plugin without building a "groupId:artifactId" key. Each override has a fixed index below
+ * {@link #capacity()}, which lets callers record the overrides they have applied in a BitSet instead of copying the
+ * table. A table can be layered over another with {@link #overlay(Map)}, which shares the entries of the base table
+ * instead of copying them. As a Map the table is keyed by "groupId:artifactId" and iterates in the order of the maps
+ * it was built from, base entries first.
+ */
+public class OverrideTable
+    extends AbstractMap<String, String>
+{
+    /**
+     * The table this one is layered over, or null
+     */
+    private final OverrideTable base;
+
+    /**
+     * Indexes of the base overrides which this table removes or replaces, or null if there are none
+     */
+    private final BitSet hidden;
+
+    private final VersionOverride[] overrides;
+
+    private final Map<String, Map<String, VersionOverride>> overridesByGroup;
+
+    private final int size;
+
+    private Set<Entry<String, String>> entrySet;
+
+    /**
+     * @param versionOverrides The versions to override, keyed by groupId:artifactId
+     */
+    public OverrideTable( Map<String, String> versionOverrides )
+    {
+        this.base = null;
+        this.hidden = null;
+        this.overrides = new VersionOverride[versionOverrides.size()];
+        this.overridesByGroup = new HashMap<String, Map<String, VersionOverride>>();
+
+        int index = 0;
+        for ( Entry<String, String> versionOverride : versionOverrides.entrySet() )
+        {
+            overrides[index] = add( index, versionOverride.getKey(), versionOverride.getValue() );
+            index++;
+        }
+        this.size = overrides.length;
+    }
+
+    private OverrideTable( OverrideTable base, Map<String, String> versionOverrides )
+    {
+        this.base = base;
+        this.hidden = new BitSet( base.capacity() );
+        this.overridesByGroup = new HashMap<String, Map<String, VersionOverride>>();
+
+        List<VersionOverride> added = new ArrayList<VersionOverride>( versionOverrides.size() );
+        for ( Entry<String, String> versionOverride : versionOverrides.entrySet() )
+        {
+            VersionOverride baseOverride = base.findKey( versionOverride.getKey() );
+            if ( baseOverride != null )
+            {
+                hidden.set( baseOverride.getIndex() );
+            }
+            String version = versionOverride.getValue();
+            if ( version != null && version.length() > 0 )
+            {
+                added.add( add( base.capacity() + added.size(), versionOverride.getKey(), version ) );
+            }
+        }
+        this.overrides = added.toArray( new VersionOverride[added.size()] );
+        this.size = base.size() - hidden.cardinality() + overrides.length;
+    }
+
+    private VersionOverride add( int index, String groupIdArtifactId, String version )
+    {
+        int separator = groupIdArtifactId.indexOf( AbstractVersionOverrider.GAV_SEPERATOR );
+        String groupId = separator < 0 ? groupIdArtifactId : groupIdArtifactId.substring( 0, separator );
+        String artifactId = separator < 0 ? "" : groupIdArtifactId.substring( separator + 1 );
+        VersionOverride override = new VersionOverride( index, groupIdArtifactId, groupId, artifactId, version );
+
+        Map<String, VersionOverride> artifacts = overridesByGroup.get( groupId );
+        if ( artifacts == null )
+        {
+            artifacts = new HashMap<String, VersionOverride>( 4 );
+            overridesByGroup.put( groupId, artifacts );
+        }
+        artifacts.put( artifactId, override );
+        return override;
+    }
+
+    /**
+     * Layer a set of overrides over this table. The entries of this table are shared rather than copied, so the cost
+     * of the new table only depends on the size of the given map.
+     *
+     * @param versionOverrides The versions to add or replace, keyed by groupId:artifactId. An empty version removes
+     *            the override of the artifact.
+     * @return A table with the overrides of this one, changed by the given ones
+     */
+    public OverrideTable overlay( Map<String, String> versionOverrides )
+    {
+        return versionOverrides.isEmpty() ? this : new OverrideTable( this, versionOverrides );
+    }
+
+    /**
+     * Look up the override of an artifact without allocating
+     *
+     * @param groupId The groupId of the artifact
+     * @param artifactId The artifactId of the artifact
+     * @return The override, or null if the artifact is not overridden
+     */
+    public VersionOverride find( String groupId, String artifactId )
+    {
+        Map<String, VersionOverride> artifacts = overridesByGroup.get( groupId );
+        VersionOverride override = artifacts == null ? null : artifacts.get( artifactId );
+        if ( override != null || base == null )
+        {
+            return override;
+        }
+        override = base.find( groupId, artifactId );
+        return override == null || hidden.get( override.getIndex() ) ? null : override;
+    }
+
+    /**
+     * @return An upper bound for the indexes of the overrides in this table
+     */
+    public int capacity()
+    {
+        return base == null ? overrides.length : base.capacity() + overrides.length;
+    }
+
+    /**
+     * @return The overrides in this table, in iteration order
+     */
+    public Collection<VersionOverride> overrides()
+    {
+        return new AbstractCollection<VersionOverride>()
+        {
+            @Override
+            public Iterator<VersionOverride> iterator()
+            {
+                return new OverrideIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public String get( Object key )
+    {
+        VersionOverride override = findKey( key );
+        return override == null ? null : override.getValue();
+    }
+
+    @Override
+    public boolean containsKey( Object key )
+    {
+        return findKey( key ) != null;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet()
+    {
+        if ( entrySet == null )
+        {
+            entrySet = new AbstractSet<Entry<String, String>>()
+            {
+                @Override
+                public Iterator<Entry<String, String>> iterator()
+                {
+                    final Iterator<VersionOverride> overrides = new OverrideIterator();
+                    return new Iterator<Entry<String, String>>()
+                    {
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return overrides.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, String> next()
+                        {
+                            return overrides.next();
+                        }
+
+                        @Override
+                        public void remove()
+                        {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private VersionOverride findKey( Object key )
+    {
+        if ( !( key instanceof String ) )
+        {
+            return null;
+        }
+        String groupIdArtifactId = (String) key;
+        int separator = groupIdArtifactId.indexOf( AbstractVersionOverrider.GAV_SEPERATOR );
+        if ( separator < 0 )
+        {
+            return find( groupIdArtifactId, "" );
+        }
+        return find( groupIdArtifactId.substring( 0, separator ), groupIdArtifactId.substring( separator + 1 ) );
+    }
+
+    /**
+     * Iterates the visible overrides of the base tables, then the overrides of this table
+     */
+    private class OverrideIterator
+        implements Iterator<VersionOverride>
+    {
+        private final Iterator<VersionOverride> baseOverrides = base == null ? null : base.new OverrideIterator();
+
+        private VersionOverride nextBaseOverride = advanceBase();
+
+        private int next = 0;
+
+        private VersionOverride advanceBase()
+        {
+            while ( baseOverrides != null && baseOverrides.hasNext() )
+            {
+                VersionOverride override = baseOverrides.next();
+                if ( !hidden.get( override.getIndex() ) )
+                {
+                    return override;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return nextBaseOverride != null || next < overrides.length;
+        }
+
+        @Override
+        public VersionOverride next()
+        {
+            if ( nextBaseOverride != null )
+            {
+                VersionOverride override = nextBaseOverride;
+                nextBaseOverride = advanceBase();
+                return override;
+            }
+            if ( next >= overrides.length )
+            {
+                throw new NoSuchElementException();
+            }
+            return overrides[next++];
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A single version override
+     */
+    public static final class VersionOverride
+        implements Entry<String, String>
+    {
+        private final int index;
+
+        private final String groupIdArtifactId;
+
+        private final String groupId;
+
+        private final String artifactId;
+
+        private final String version;
+
+        VersionOverride( int index, String groupIdArtifactId, String groupId, String artifactId, String version )
+        {
+            this.index = index;
+            this.groupIdArtifactId = groupIdArtifactId;
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+        }
+
+        /**
+         * @return The position of this override in its table
+         */
+        public int getIndex()
+        {
+            return index;
+        }
+
+        public String getGroupId()
+        {
+            return groupId;
+        }
+
+        public String getArtifactId()
+        {
+            return artifactId;
+        }
+
+        /**
+         * @return The groupId:artifactId of the overridden artifact
+         */
+        @Override
+        public String getKey()
+        {
+            return groupIdArtifactId;
+        }
+
+        /**
+         * @return The version to use
+         */
+        @Override
+        public String getValue()
+        {
+            return version;
+        }
+
+        @Override
+        public String setValue( String value )
+        {
+            throw new UnsupportedOperationException( "Override tables are immutable" );
+        }
+
+        @Override
+        public boolean equals( Object other )
+        {
+            if ( !( other instanceof Entry ) )
+            {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) other;
+            return groupIdArtifactId.equals( entry.getKey() )
+                && ( version == null ? entry.getValue() == null : version.equals( entry.getValue() ) );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return groupIdArtifactId.hashCode() ^ ( version == null ? 0 : version.hashCode() );
+        }
+
+        @Override
+        public String toString()
+        {
+            return groupIdArtifactId + "=" + version;
+        }
+    }
+}
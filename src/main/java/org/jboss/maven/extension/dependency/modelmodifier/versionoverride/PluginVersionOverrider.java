@@ -15,22 +15,22 @@
  */
 package org.jboss.maven.extension.dependency.modelmodifier.versionoverride;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
+import java.util.concurrent.Future;
 
 import org.apache.maven.MavenExecutionException;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.model.PluginManagement;
-import org.apache.maven.model.building.ModelBuildingException;
+import org.jboss.maven.extension.dependency.metainf.MetaInfWriter;
+import org.jboss.maven.extension.dependency.modelmodifier.ReactorProjects;
 import org.jboss.maven.extension.dependency.resolver.EffectiveModelBuilder;
+import org.jboss.maven.extension.dependency.util.ExtensionConfiguration;
 import org.jboss.maven.extension.dependency.util.Log;
 import org.jboss.maven.extension.dependency.util.MavenUtil;
-import org.jboss.maven.extension.dependency.util.VersionPropertyReader;
-import org.sonatype.aether.resolution.ArtifactDescriptorException;
-import org.sonatype.aether.resolution.ArtifactResolutionException;
 
 /**
  * Overrides plugin versions in a model
@@ -47,24 +47,47 @@ public class PluginVersionOverrider
      * The String that needs to be prepended a system property to make it a plugin version override. <br />
      * ex: -DpluginVersion:foo:maven-bar-plugin=1.0
      */
-    private static final String PLUGIN_VERSION_OVERRIDE_PREFIX = "pluginVersion:";
+    public static final String PLUGIN_VERSION_OVERRIDE_PREFIX = "pluginVersion:";
+
+    /**
+     * The name of the property which contains the path of a file of plugin version overrides, one
+     * "groupId:artifactId=version" per line. <br />
+     * ex: -DpluginVersionOverridesFile=plugin-overrides.properties
+     */
+    public static final String PLUGIN_VERSION_OVERRIDES_FILE_PROPERTY = "pluginVersionOverridesFile";
 
     /**
      * The name of the property which contains the GAV of the remote pom from which to retrieve plugin management
      * information. <br />
      * ex: -DpluginManagement:org.foo:bar-plugin-mgmt:1.0
      */
-    private static final String PLUGIN_MANAGEMENT_POM_PROPERTY = "pluginManagement";
+    public static final String PLUGIN_MANAGEMENT_POM_PROPERTY = "pluginManagement";
+
+    /**
+     * Resolves the remote poms of the session
+     */
+    private final EffectiveModelBuilder modelBuilder;
 
     /**
      * Cache for override properties. Null until getVersionOverrides() is called.
      */
-    private Map<String, String> pluginVersionOverrides;
+    private OverrideTable pluginVersionOverrides;
+
+    /**
+     * @param modelBuilder Resolves the remote poms of the session
+     * @param metaInfWriter Writes the resources of the session
+     */
+    public PluginVersionOverrider( EffectiveModelBuilder modelBuilder, MetaInfWriter metaInfWriter )
+    {
+        super( metaInfWriter );
+        this.modelBuilder = modelBuilder;
+    }
 
     @Override
-    public boolean updateModel( Model model ) throws MavenExecutionException
+    public boolean updateModel( Model model, ExtensionConfiguration configuration, ReactorProjects reactorProjects )
+        throws MavenExecutionException
     {
-        Map<String, String> versionOverrides = getVersionOverrides();
+        OverrideTable versionOverrides = getVersionOverrides( configuration );
         if ( versionOverrides.size() == 0 )
         {
             return false;
@@ -80,17 +103,19 @@ public class PluginVersionOverrider
         }
 
         // Override plugin management versions
-        applyOverrides( pluginManagement.getPlugins(), versionOverrides );
+        boolean modelChanged = applyOverrides( pluginManagement.getPlugins(), versionOverrides );
 
         // Override plugin versions
         List<Plugin> projectPlugins = model.getBuild().getPlugins();
-        applyOverrides( projectPlugins, versionOverrides );
+        if ( applyOverrides( projectPlugins, versionOverrides ) )
+        {
+            modelChanged = true;
+        }
 
         // Include the overrides in the built files for repeatability
         writeOverrideMap( model, getName(), versionOverrides );
 
-        // Assuming the Model changed since overrides were given
-        return true;
+        return modelChanged;
     }
 
     @Override
@@ -100,20 +125,36 @@ public class PluginVersionOverrider
     }
 
     /**
-     * Get the set of versions which will be used to override local plugin versions.
+     * Get the set of versions which will be used to override local plugin versions. Synchronized since projects may be
+     * modified by several threads; the returned table is immutable.
      */
-    private Map<String, String> getVersionOverrides() throws MavenExecutionException
+    private synchronized OverrideTable getVersionOverrides( ExtensionConfiguration configuration )
+        throws MavenExecutionException
     {
         if ( pluginVersionOverrides == null )
         {
-            pluginVersionOverrides = new HashMap<String, String>();
+            Map<String, String> versionOverrides = new HashMap<String, String>();
 
-            Map<String, String> remotePluginOverrides = loadRemotePluginVersionOverrides();
-            pluginVersionOverrides.putAll( remotePluginOverrides );
+            Map<String, String> remotePluginOverrides = loadRemotePluginVersionOverrides( configuration );
+            versionOverrides.putAll( remotePluginOverrides );
+
+            Map<String, String> filePluginOverrides =
+                loadOverridesFile( configuration, PLUGIN_VERSION_OVERRIDES_FILE_PROPERTY, false );
+            versionOverrides.putAll( filePluginOverrides );
 
             Map<String, String> propPluginOverrides =
-                VersionPropertyReader.getPropertiesByPrefix( PLUGIN_VERSION_OVERRIDE_PREFIX );
-            pluginVersionOverrides.putAll( propPluginOverrides );
+                configuration.getPropertiesByPrefix( PLUGIN_VERSION_OVERRIDE_PREFIX );
+            for ( String pluginGA : propPluginOverrides.keySet() )
+            {
+                if ( OverridePatterns.isPattern( pluginGA ) )
+                {
+                    throw new MavenExecutionException( "Plugin version override patterns are not supported: "
+                        + PLUGIN_VERSION_OVERRIDE_PREFIX + pluginGA, (Throwable) null );
+                }
+            }
+            versionOverrides.putAll( propPluginOverrides );
+
+            pluginVersionOverrides = new OverrideTable( versionOverrides );
         }
         return pluginVersionOverrides;
     }
@@ -123,19 +164,36 @@ public class PluginVersionOverrider
      * 
      * @param plugins The list of plugins to modify
      * @param pluginVersionOverrides The list of version overrides to apply to the plugins
+     * @return Whether the version of any plugin changed
      */
-    private static void applyOverrides( List<Plugin> plugins, Map<String, String> pluginVersionOverrides )
+    private static boolean applyOverrides( List<Plugin> plugins, OverrideTable pluginVersionOverrides )
     {
+        boolean changed = false;
         for ( Plugin plugin : plugins )
         {
-            String groupIdArtifactId = plugin.getGroupId() + GAV_SEPERATOR + plugin.getArtifactId();
-            if ( pluginVersionOverrides.containsKey( groupIdArtifactId ) )
+            OverrideTable.VersionOverride override =
+                pluginVersionOverrides.find( plugin.getGroupId(), plugin.getArtifactId() );
+            if ( override == null )
+            {
+                continue;
+            }
+            if ( override.getValue() == null )
             {
-                String overrideVersion = pluginVersionOverrides.get( groupIdArtifactId );
-                plugin.setVersion( overrideVersion );
-                Log.getLog().debug( "Altered plugin: " + groupIdArtifactId + "=" + overrideVersion );
+                // A remote pluginManagement entry without a version has nothing to align to
+                Log.getLog().debug( "Ignoring plugin override without a version: " + override.getKey() );
+                continue;
             }
+            changed |= !override.getValue().equals( plugin.getVersion() );
+            plugin.setVersion( override.getValue() );
+            Log.getLog().debug( "Altered plugin: " + override );
         }
+        return changed;
+    }
+
+    @Override
+    public void prefetchRemoteOverrides( ExtensionConfiguration configuration )
+    {
+        submitRemotePluginVersionOverrides( configuration, false );
     }
 
     /**
@@ -144,51 +202,47 @@ public class PluginVersionOverrider
      * @return Map between the GA of the plugin and the version of the plugin. If the system property is not set,
      *         returns an empty map.
      */
-    private static Map<String, String> loadRemotePluginVersionOverrides() throws MavenExecutionException
+    private Map<String, String> loadRemotePluginVersionOverrides( ExtensionConfiguration configuration )
+        throws MavenExecutionException
+    {
+        return mergeRemoteOverrides( submitRemotePluginVersionOverrides( configuration, true ) );
+    }
+
+    /**
+     * Start resolving the remote poms listed in the plugin management property in the background. Poms which are
+     * already being resolved, for example because they were prefetched, are not resolved again.
+     *
+     * @param configuration The configuration of the session
+     * @param warnInvalid Whether to log a warning for each invalid GAV
+     * @return The pending override maps in order of priority. If the property is not set, returns an empty list.
+     */
+    private List<Future<Map<String, String>>> submitRemotePluginVersionOverrides(
+        ExtensionConfiguration configuration, boolean warnInvalid )
     {
-        Properties systemProperties = System.getProperties();
-        String pluginMgmtCSV = systemProperties.getProperty( PLUGIN_MANAGEMENT_POM_PROPERTY );
+        String pluginMgmtCSV = configuration.getProperty( PLUGIN_MANAGEMENT_POM_PROPERTY );
 
-        Map<String, String> versionOverrides = new HashMap<String, String>( 0 );
+        List<Future<Map<String, String>>> remoteOverrides = new ArrayList<Future<Map<String, String>>>();
 
         if ( pluginMgmtCSV == null )
         {
-            return versionOverrides;
+            return remoteOverrides;
         }
 
         String[] pluginMgmtPomGAVs = pluginMgmtCSV.split( "," );
 
-        // Iterate in reverse order so that the first GAV in the list overwrites the last
-        for ( int i = ( pluginMgmtPomGAVs.length - 1 ); i > -1; --i )
+        for ( String nextGAV : pluginMgmtPomGAVs )
         {
-            String nextGAV = pluginMgmtPomGAVs[i];
-
             if ( !MavenUtil.validGav( nextGAV ) )
             {
-                Log.getLog().warn( "Skipping invalid plugin management GAV: " + nextGAV );
+                if ( warnInvalid )
+                {
+                    Log.getLog().warn( "Skipping invalid plugin management GAV: " + nextGAV );
+                }
                 continue;
             }
-            try
-            {
-                EffectiveModelBuilder resolver = EffectiveModelBuilder.getInstance();
-                versionOverrides.putAll( resolver.getRemotePluginVersionOverrides( nextGAV ) );
-            }
-            catch ( ArtifactResolutionException e )
-            {
-                Log.getLog().error( "Unable to resolve remote pom: " + e );
-                throw new MavenExecutionException("Unable to resolve remote pom", e);
-            }
-            catch ( ArtifactDescriptorException e )
-            {
-                Log.getLog().error( "Unable to resolve remote pom: " + e );
-                throw new MavenExecutionException("Unable to resolve remote pom", e);
-            }
-            catch ( ModelBuildingException e )
-            {
-                Log.getLog().error( "Unable to resolve remote pom: " + e );
-                throw new MavenExecutionException("Unable to resolve remote pom", e);
-            }
+            remoteOverrides.add( modelBuilder.submitRemotePluginVersionOverrides( nextGAV ) );
         }
-        return versionOverrides;
+
+        return remoteOverrides;
     }
 }
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.modelmodifier.versionoverride;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.MavenExecutionException;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Reads version overrides from a local file, as an alternative to passing each override as a separate property. The
+ * file is UTF-8 text with one "groupId:artifactId=version" per line, in the same form as the name and value of an
+ * override property without its prefix. Blank lines and lines starting with '#' are ignored.
+ */
+class VersionOverridesFile
+{
+    private VersionOverridesFile()
+    {
+    }
+
+    /**
+     * Read an override file line by line
+     *
+     * @param file The file to read
+     * @param dependencyOverrides Whether the file holds dependency overrides, whose keys may end with
+     *            "@moduleGroupId:moduleArtifactId" or be patterns, rather than plugin overrides
+     * @return The overrides keyed by groupId:artifactId, or groupId:artifactId@moduleGroupId:moduleArtifactId
+     * @throws MavenExecutionException If the file can't be read or has an invalid line
+     */
+    static Map<String, String> read( File file, boolean dependencyOverrides )
+        throws MavenExecutionException
+    {
+        Map<String, String> versionOverrides = new HashMap<String, String>();
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), "UTF-8" ) );
+            int lineNumber = 0;
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                lineNumber++;
+                line = line.trim();
+                if ( line.length() == 0 || line.charAt( 0 ) == '#' )
+                {
+                    continue;
+                }
+
+                int separator = line.indexOf( '=' );
+                if ( separator < 0 )
+                {
+                    throw invalidLine( file, lineNumber, "expected groupId:artifactId=version" );
+                }
+                String key = line.substring( 0, separator ).trim();
+                String version = line.substring( separator + 1 ).trim();
+
+                int moduleSeparator = key.indexOf( '@' );
+                if ( moduleSeparator >= 0 && !dependencyOverrides )
+                {
+                    throw invalidLine( file, lineNumber, "module specific overrides are not supported" );
+                }
+                String artifact = moduleSeparator < 0 ? key : key.substring( 0, moduleSeparator );
+                if ( OverridePatterns.isPattern( artifact ) && !dependencyOverrides )
+                {
+                    throw invalidLine( file, lineNumber, "override patterns are not supported" );
+                }
+                if ( !isGroupIdArtifactId( artifact ) )
+                {
+                    throw invalidLine( file, lineNumber, "invalid groupId:artifactId '" + artifact + "'" );
+                }
+                if ( moduleSeparator >= 0 && !isGroupIdArtifactId( key.substring( moduleSeparator + 1 ) ) )
+                {
+                    throw invalidLine( file, lineNumber, "invalid module groupId:artifactId '"
+                        + key.substring( moduleSeparator + 1 ) + "'" );
+                }
+
+                versionOverrides.put( key, version );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MavenExecutionException( "Unable to read version overrides from " + file + ": " + e.getMessage(),
+                                               e );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+        return versionOverrides;
+    }
+
+    private static boolean isGroupIdArtifactId( String groupIdArtifactId )
+    {
+        int separator = groupIdArtifactId.indexOf( ':' );
+        return separator > 0 && separator < groupIdArtifactId.length() - 1
+            && groupIdArtifactId.indexOf( ':', separator + 1 ) < 0;
+    }
+
+    private static MavenExecutionException invalidLine( File file, int lineNumber, String message )
+    {
+        return new MavenExecutionException( "Invalid version override at " + file + ":" + lineNumber + ": " + message,
+                                            file );
+    }
+}
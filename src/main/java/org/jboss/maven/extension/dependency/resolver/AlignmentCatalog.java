@@ -0,0 +1,379 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.resolver;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Read only view of a compiled alignment catalog. An alignment catalog holds the managed dependency versions of a BOM
+ * as a sorted table of groupId, artifactId and version references into a table of unique UTF-8 strings. The file is
+ * memory mapped and searched in place, so no objects are created for an entry until it is returned by a lookup.
+ * Catalogs are written by {@link AlignmentCatalogWriter}.
+ * <p>
+ * The file layout is a header of four ints (magic, format version, string count, entry count), followed by the start
+ * offset of each string plus the end offset of the last one, the string bytes, padding up to a multiple of four bytes,
+ * and finally one groupId, artifactId and version string index per entry. Every offset and index is checked when the
+ * catalog is opened, so a damaged file is rejected up front instead of failing a lookup.
+ */
+public class AlignmentCatalog
+    extends AbstractMap<String, String>
+{
+    /**
+     * The artifact extension under which catalogs are published next to their BOM
+     */
+    public static final String EXTENSION = "catalog";
+
+    /**
+     * Marker at the start of every catalog
+     */
+    static final int MAGIC = 0x4d444d43;
+
+    /**
+     * Version of the catalog format, increase when the format changes
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Size in bytes of the fixed header
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Number of ints stored per entry
+     */
+    static final int ENTRY_INTS = 3;
+
+    private static final String UTF_8 = "UTF-8";
+
+    private final ByteBuffer buffer;
+
+    private final int stringCount;
+
+    private final int entryCount;
+
+    private final int stringDataStart;
+
+    private final int entriesStart;
+
+    private Set<Entry<String, String>> entrySet;
+
+    private AlignmentCatalog( ByteBuffer buffer )
+        throws IOException
+    {
+        this.buffer = buffer;
+        if ( buffer.capacity() < HEADER_SIZE || buffer.getInt( 0 ) != MAGIC )
+        {
+            throw new IOException( "Not an alignment catalog" );
+        }
+        if ( buffer.getInt( 4 ) != FORMAT_VERSION )
+        {
+            throw new IOException( "Unsupported alignment catalog format " + buffer.getInt( 4 ) );
+        }
+        stringCount = buffer.getInt( 8 );
+        entryCount = buffer.getInt( 12 );
+        if ( stringCount < 0 || entryCount < 0 || HEADER_SIZE + 4L * ( stringCount + 1 ) > buffer.capacity() )
+        {
+            throw new IOException( "Truncated alignment catalog" );
+        }
+        stringDataStart = HEADER_SIZE + 4 * ( stringCount + 1 );
+        checkStringOffsets();
+        entriesStart = align( stringDataStart + stringOffset( stringCount ) );
+        if ( entriesStart + 4L * ENTRY_INTS * entryCount != buffer.capacity() )
+        {
+            throw new IOException( "Truncated alignment catalog" );
+        }
+        checkEntryStrings();
+    }
+
+    /**
+     * Check that the string offsets start at zero, never decrease and stay within the file
+     */
+    private void checkStringOffsets()
+        throws IOException
+    {
+        int previous = 0;
+        for ( int string = 0; string <= stringCount; string++ )
+        {
+            int offset = stringOffset( string );
+            if ( ( string == 0 && offset != 0 ) || offset < previous )
+            {
+                throw new IOException( "Invalid string offset in alignment catalog" );
+            }
+            previous = offset;
+        }
+        if ( stringDataStart + (long) previous > buffer.capacity() )
+        {
+            throw new IOException( "Truncated alignment catalog" );
+        }
+    }
+
+    /**
+     * Check that every entry refers to existing strings
+     */
+    private void checkEntryStrings()
+        throws IOException
+    {
+        for ( int entry = 0; entry < entryCount; entry++ )
+        {
+            for ( int field = 0; field < ENTRY_INTS; field++ )
+            {
+                int string = entryString( entry, field );
+                if ( string < 0 || string >= stringCount )
+                {
+                    throw new IOException( "Invalid string index in alignment catalog" );
+                }
+            }
+        }
+    }
+
+    /**
+     * Map a catalog file into memory
+     *
+     * @param file The catalog file
+     * @return The catalog
+     * @throws IOException If the file can't be read or isn't a catalog
+     */
+    public static AlignmentCatalog open( File file )
+        throws IOException
+    {
+        FileInputStream in = new FileInputStream( file );
+        try
+        {
+            FileChannel channel = in.getChannel();
+            // The mapping stays valid after the channel is closed
+            return new AlignmentCatalog( channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) );
+        }
+        catch ( IOException e )
+        {
+            throw new IOException( "Could not read alignment catalog " + file + ": " + e.getMessage(), e );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Look up the managed version of a dependency
+     *
+     * @param key The groupId:artifactId of the dependency
+     * @return The version, or null if the catalog doesn't manage the dependency
+     */
+    @Override
+    public String get( Object key )
+    {
+        int entry = indexOf( key );
+        return entry < 0 ? null : string( entryString( entry, 2 ) );
+    }
+
+    @Override
+    public boolean containsKey( Object key )
+    {
+        return indexOf( key ) >= 0;
+    }
+
+    @Override
+    public int size()
+    {
+        return entryCount;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet()
+    {
+        if ( entrySet == null )
+        {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * Binary search for a groupId:artifactId
+     *
+     * @return The index of the entry, or -1 if it isn't in the catalog
+     */
+    private int indexOf( Object key )
+    {
+        if ( !( key instanceof String ) )
+        {
+            return -1;
+        }
+        String ga = (String) key;
+        int separator = ga.indexOf( ':' );
+        if ( separator < 0 )
+        {
+            return -1;
+        }
+        byte[] groupId = utf8( ga.substring( 0, separator ) );
+        byte[] artifactId = utf8( ga.substring( separator + 1 ) );
+
+        int low = 0;
+        int high = entryCount - 1;
+        while ( low <= high )
+        {
+            int mid = ( low + high ) >>> 1;
+            int cmp = compare( entryString( mid, 0 ), groupId );
+            if ( cmp == 0 )
+            {
+                cmp = compare( entryString( mid, 1 ), artifactId );
+            }
+            if ( cmp < 0 )
+            {
+                low = mid + 1;
+            }
+            else if ( cmp > 0 )
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compare a string of the catalog with the given bytes, treating both as unsigned byte sequences
+     */
+    private int compare( int string, byte[] bytes )
+    {
+        int start = stringDataStart + stringOffset( string );
+        int length = stringDataStart + stringOffset( string + 1 ) - start;
+        int common = Math.min( length, bytes.length );
+        for ( int i = 0; i < common; i++ )
+        {
+            int diff = ( buffer.get( start + i ) & 0xff ) - ( bytes[i] & 0xff );
+            if ( diff != 0 )
+            {
+                return diff;
+            }
+        }
+        return length - bytes.length;
+    }
+
+    private int stringOffset( int string )
+    {
+        return buffer.getInt( HEADER_SIZE + 4 * string );
+    }
+
+    /**
+     * @param entry The entry index
+     * @param field 0 for the groupId, 1 for the artifactId and 2 for the version
+     * @return The index of the string holding the field
+     */
+    private int entryString( int entry, int field )
+    {
+        return buffer.getInt( entriesStart + 4 * ( entry * ENTRY_INTS + field ) );
+    }
+
+    private String string( int string )
+    {
+        int start = stringDataStart + stringOffset( string );
+        byte[] bytes = new byte[stringDataStart + stringOffset( string + 1 ) - start];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            bytes[i] = buffer.get( start + i );
+        }
+        try
+        {
+            return new String( bytes, UTF_8 );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            // Every Java platform is required to support UTF-8
+            throw new IllegalStateException( e );
+        }
+    }
+
+    static byte[] utf8( String string )
+    {
+        try
+        {
+            return string.getBytes( UTF_8 );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            // Every Java platform is required to support UTF-8
+            throw new IllegalStateException( e );
+        }
+    }
+
+    static int align( int offset )
+    {
+        return ( offset + 3 ) & ~3;
+    }
+
+    /**
+     * Entries in catalog order, each decoded when the iterator reaches it
+     */
+    private class EntrySet
+        extends AbstractSet<Entry<String, String>>
+    {
+        @Override
+        public Iterator<Entry<String, String>> iterator()
+        {
+            return new Iterator<Entry<String, String>>()
+            {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return next < entryCount;
+                }
+
+                @Override
+                public Entry<String, String> next()
+                {
+                    if ( next >= entryCount )
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    int entry = next++;
+                    String ga = string( entryString( entry, 0 ) ) + ":" + string( entryString( entry, 1 ) );
+                    return new SimpleImmutableEntry<String, String>( ga, string( entryString( entry, 2 ) ) );
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return entryCount;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.resolver;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Repository;
+import org.apache.maven.model.building.DefaultModelBuilderFactory;
+import org.apache.maven.model.building.DefaultModelBuildingRequest;
+import org.apache.maven.model.building.FileModelSource;
+import org.apache.maven.model.building.ModelBuildingException;
+import org.apache.maven.model.building.ModelBuildingRequest;
+import org.apache.maven.model.building.ModelSource;
+import org.apache.maven.model.resolution.ModelResolver;
+import org.apache.maven.model.resolution.UnresolvableModelException;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Compiles the dependency management of a BOM into an {@link AlignmentCatalog}. Can be run from the command line with
+ * the Maven libraries on the class path:
+ *
+ * <pre>
+ * java -cp "maven-dependency-management-extension.jar:$MAVEN_HOME/lib/*" \
+ *     org.jboss.maven.extension.dependency.resolver.AlignmentCatalogWriter bom.pom bom.catalog [localRepository]
+ * </pre>
+ *
+ * Parents and imported BOMs are read from the local repository, which defaults to ~/.m2/repository.
+ */
+public class AlignmentCatalogWriter
+{
+    /**
+     * Orders entries by the unsigned bytes of their UTF-8 groupId, then artifactId, as the catalog lookup expects
+     */
+    private static final Comparator<byte[][]> ENTRY_ORDER = new Comparator<byte[][]>()
+    {
+        @Override
+        public int compare( byte[][] first, byte[][] second )
+        {
+            int cmp = compareBytes( first[0], second[0] );
+            return cmp != 0 ? cmp : compareBytes( first[1], second[1] );
+        }
+    };
+
+    public static void main( String[] args )
+        throws IOException, ModelBuildingException
+    {
+        if ( args.length < 2 || args.length > 3 )
+        {
+            System.err.println( "Usage: AlignmentCatalogWriter <bom pom> <output catalog> [local repository]" );
+            System.exit( 1 );
+        }
+        File localRepository =
+            args.length > 2 ? new File( args[2] ) : new File( System.getProperty( "user.home" ), ".m2/repository" );
+
+        ModelBuildingRequest request = new DefaultModelBuildingRequest();
+        request.setPomFile( new File( args[0] ) );
+        request.setModelResolver( new LocalRepositoryModelResolver( localRepository ) );
+        request.setValidationLevel( ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL );
+        request.setProcessPlugins( false );
+        request.setTwoPhaseBuilding( false );
+        request.setSystemProperties( System.getProperties() );
+
+        Model bom = new DefaultModelBuilderFactory().newInstance().build( request ).getEffectiveModel();
+        Map<String, String> versions = EffectiveModelBuilder.getDependencyManagementVersions( bom );
+        write( versions, new File( args[1] ) );
+        System.out.println( "Wrote " + versions.size() + " managed versions to " + args[1] );
+    }
+
+    /**
+     * Write a catalog file
+     *
+     * @param versions The managed versions, keyed by groupId:artifactId. Entries without a version are left out.
+     * @param file The file to write
+     * @throws IOException If the file can't be written
+     */
+    public static void write( Map<String, String> versions, File file )
+        throws IOException
+    {
+        Map<String, Integer> stringIndexes = new LinkedHashMap<String, Integer>();
+        List<byte[]> strings = new ArrayList<byte[]>();
+        final List<byte[][]> entries = new ArrayList<byte[][]>();
+        List<int[]> entryStrings = new ArrayList<int[]>();
+
+        for ( Entry<String, String> version : versions.entrySet() )
+        {
+            int separator = version.getKey().indexOf( ':' );
+            if ( separator < 0 || version.getValue() == null )
+            {
+                continue;
+            }
+            String groupId = version.getKey().substring( 0, separator );
+            String artifactId = version.getKey().substring( separator + 1 );
+            entries.add( new byte[][] { AlignmentCatalog.utf8( groupId ), AlignmentCatalog.utf8( artifactId ) } );
+            entryStrings.add( new int[] { intern( groupId, stringIndexes, strings ),
+                intern( artifactId, stringIndexes, strings ), intern( version.getValue(), stringIndexes, strings ) } );
+        }
+
+        // Sort the string indexes along with their keys
+        Integer[] order = new Integer[entries.size()];
+        for ( int i = 0; i < order.length; i++ )
+        {
+            order[i] = i;
+        }
+        Arrays.sort( order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare( Integer first, Integer second )
+            {
+                return ENTRY_ORDER.compare( entries.get( first ), entries.get( second ) );
+            }
+        } );
+
+        DataOutputStream out = null;
+        try
+        {
+            out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ) ) );
+            out.writeInt( AlignmentCatalog.MAGIC );
+            out.writeInt( AlignmentCatalog.FORMAT_VERSION );
+            out.writeInt( strings.size() );
+            out.writeInt( order.length );
+
+            int offset = 0;
+            for ( byte[] string : strings )
+            {
+                out.writeInt( offset );
+                offset += string.length;
+            }
+            out.writeInt( offset );
+            for ( byte[] string : strings )
+            {
+                out.write( string );
+            }
+            int dataEnd = AlignmentCatalog.HEADER_SIZE + 4 * ( strings.size() + 1 ) + offset;
+            for ( int i = dataEnd; i < AlignmentCatalog.align( dataEnd ); i++ )
+            {
+                out.writeByte( 0 );
+            }
+
+            for ( Integer entry : order )
+            {
+                for ( int string : entryStrings.get( entry ) )
+                {
+                    out.writeInt( string );
+                }
+            }
+            out.flush();
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    private static int intern( String string, Map<String, Integer> stringIndexes, List<byte[]> strings )
+    {
+        Integer index = stringIndexes.get( string );
+        if ( index == null )
+        {
+            index = strings.size();
+            stringIndexes.put( string, index );
+            strings.add( AlignmentCatalog.utf8( string ) );
+        }
+        return index;
+    }
+
+    private static int compareBytes( byte[] first, byte[] second )
+    {
+        int common = Math.min( first.length, second.length );
+        for ( int i = 0; i < common; i++ )
+        {
+            int diff = ( first[i] & 0xff ) - ( second[i] & 0xff );
+            if ( diff != 0 )
+            {
+                return diff;
+            }
+        }
+        return first.length - second.length;
+    }
+
+    /**
+     * Resolves parent and imported poms from a local repository directory only
+     */
+    private static class LocalRepositoryModelResolver
+        implements ModelResolver
+    {
+        private final File localRepository;
+
+        LocalRepositoryModelResolver( File localRepository )
+        {
+            this.localRepository = localRepository;
+        }
+
+        @Override
+        public ModelSource resolveModel( String groupId, String artifactId, String version )
+            throws UnresolvableModelException
+        {
+            File pom =
+                new File( localRepository, groupId.replace( '.', '/' ) + "/" + artifactId + "/" + version + "/"
+                    + artifactId + "-" + version + ".pom" );
+            if ( !pom.isFile() )
+            {
+                throw new UnresolvableModelException( "Not found in " + localRepository, groupId, artifactId,
+                                                      version );
+            }
+            return new FileModelSource( pom );
+        }
+
+        @Override
+        public void addRepository( Repository repository )
+        {
+            // Only the local repository is used
+        }
+
+        @Override
+        public ModelResolver newCopy()
+        {
+            return this;
+        }
+    }
+}
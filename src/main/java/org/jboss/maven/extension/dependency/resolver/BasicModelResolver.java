@@ -16,7 +16,6 @@
 package org.jboss.maven.extension.dependency.resolver;
 
 import java.io.File;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -31,7 +30,6 @@ import org.apache.maven.repository.internal.ArtifactDescriptorUtils;
 import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.artifact.Artifact;
 import org.sonatype.aether.impl.ArtifactResolver;
-import org.sonatype.aether.impl.RemoteRepositoryManager;
 import org.sonatype.aether.repository.RemoteRepository;
 import org.sonatype.aether.resolution.ArtifactRequest;
 import org.sonatype.aether.resolution.ArtifactResolutionException;
@@ -48,18 +46,22 @@ public class BasicModelResolver
 
     private final ArtifactResolver resolver;
 
-    private final RemoteRepositoryManager remoteRepositoryManager;
+    private final RepositoryListCache repositoryListCache;
+
+    private final MissingArtifactCache missingArtifacts;
 
     private final Set<String> repositoryIds;
 
     private List<RemoteRepository> repositories;
 
     public BasicModelResolver( RepositorySystemSession session, ArtifactResolver resolver,
-                               RemoteRepositoryManager remoteRepositoryManager, List<RemoteRepository> repositories )
+                               RepositoryListCache repositoryListCache, MissingArtifactCache missingArtifacts,
+                               List<RemoteRepository> repositories )
     {
         this.session = session;
         this.resolver = resolver;
-        this.remoteRepositoryManager = remoteRepositoryManager;
+        this.repositoryListCache = repositoryListCache;
+        this.missingArtifacts = missingArtifacts;
         this.repositories = repositories;
         this.repositoryIds = new HashSet<String>();
     }
@@ -68,7 +70,8 @@ public class BasicModelResolver
     {
         this.session = original.session;
         this.resolver = original.resolver;
-        this.remoteRepositoryManager = original.remoteRepositoryManager;
+        this.repositoryListCache = original.repositoryListCache;
+        this.missingArtifacts = original.missingArtifacts;
         this.repositories = original.repositories;
         this.repositoryIds = new HashSet<String>( original.repositoryIds );
     }
@@ -82,11 +85,8 @@ public class BasicModelResolver
             return;
         }
 
-        List<RemoteRepository> newRepositories =
-            Collections.singletonList( ArtifactDescriptorUtils.toRemoteRepository( repository ) );
-
         this.repositories =
-            remoteRepositoryManager.aggregateRepositories( session, repositories, newRepositories, true );
+            repositoryListCache.aggregate( repositories, ArtifactDescriptorUtils.toRemoteRepository( repository ) );
     }
 
     @Override
@@ -106,7 +106,7 @@ public class BasicModelResolver
             ArtifactRequest request = new ArtifactRequest();
             request.setArtifact( pomArtifact );
             request.setRepositories( repositories );
-            pomArtifact = resolver.resolveArtifact( session, request ).getArtifact();
+            pomArtifact = EffectiveModelBuilder.resolveArtifact( resolver, session, request, missingArtifacts );
         }
         catch ( ArtifactResolutionException e )
         {
@@ -16,12 +16,29 @@
 package org.jboss.maven.extension.dependency.resolver;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.execution.MavenSession;
@@ -33,20 +50,25 @@ import org.apache.maven.model.building.ModelBuilder;
 import org.apache.maven.model.building.ModelBuildingException;
 import org.apache.maven.model.building.ModelBuildingRequest;
 import org.apache.maven.model.building.ModelBuildingResult;
+import org.apache.maven.model.building.ModelCache;
 import org.apache.maven.model.building.ModelProblem;
 import org.apache.maven.model.resolution.ModelResolver;
 import org.codehaus.plexus.DefaultPlexusContainer;
 import org.codehaus.plexus.PlexusContainerException;
 import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
+import org.jboss.maven.extension.dependency.resolver.OverrideTableCache.CachedTable;
+import org.jboss.maven.extension.dependency.resolver.OverrideTableMemoryCache.PomStamp;
+import org.jboss.maven.extension.dependency.resolver.StreamingPomReader.StreamedPom;
+import org.jboss.maven.extension.dependency.util.ExtensionConfiguration;
 import org.jboss.maven.extension.dependency.util.Log;
 import org.sonatype.aether.RepositorySystem;
 import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.artifact.Artifact;
 import org.sonatype.aether.graph.Dependency;
 import org.sonatype.aether.impl.ArtifactResolver;
-import org.sonatype.aether.impl.RemoteRepositoryManager;
 import org.sonatype.aether.impl.internal.DefaultRemoteRepositoryManager;
 import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
 import org.sonatype.aether.resolution.ArtifactDescriptorException;
 import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
 import org.sonatype.aether.resolution.ArtifactDescriptorResult;
@@ -61,16 +83,168 @@ import org.sonatype.aether.util.artifact.DefaultArtifact;
 public class EffectiveModelBuilder
 {
 
-    private static EffectiveModelBuilder instance;
+    /**
+     * The name of the property which can be set to "false" to disable the persistent cache of remote override tables.
+     * <br />
+     * ex: -DdependencyManagement.cache=false
+     */
+    private static final String OVERRIDE_CACHE_PROPERTY = "dependencyManagement.cache";
+
+    /**
+     * The name of the property which can be set to "true" to read dependency management from the alignment catalog
+     * published next to each remote pom, when there is one. <br />
+     * ex: -DdependencyManagement.catalog=true
+     */
+    private static final String CATALOG_PROPERTY = "dependencyManagement.catalog";
+
+    /**
+     * The name of the property which can be set to "false" to always contact the remote repositories for remote poms
+     * which recently could not be found. <br />
+     * ex: -DdependencyManagement.missingCache=false
+     */
+    private static final String MISSING_CACHE_PROPERTY = "dependencyManagement.missingCache";
+
+    /**
+     * The name of the property which sets how many minutes a remote pom which could not be found is reported as
+     * missing without contacting the remote repositories. <br />
+     * ex: -DdependencyManagement.missingTtl=10
+     */
+    private static final String MISSING_TTL_PROPERTY = "dependencyManagement.missingTtl";
+
+    /**
+     * Default number of minutes for which a missing remote pom is not looked up again
+     */
+    private static final String DEFAULT_MISSING_TTL = "10";
+
+    /**
+     * The name of the property which can be set to "false" to disable the in memory cache of override tables shared by
+     * the sessions of a JVM. <br />
+     * ex: -DdependencyManagement.memoryCache=false
+     */
+    private static final String MEMORY_CACHE_PROPERTY = "dependencyManagement.memoryCache";
+
+    /**
+     * The name of the property which sets how many override tables the in memory cache keeps. Only the session which
+     * creates the cache of the JVM sets it. <br />
+     * ex: -DdependencyManagement.memoryCache.maxTables=64
+     */
+    private static final String MEMORY_CACHE_TABLES_PROPERTY = "dependencyManagement.memoryCache.maxTables";
+
+    /**
+     * Default number of override tables kept in memory
+     */
+    private static final String DEFAULT_MEMORY_CACHE_TABLES = "32";
+
+    /**
+     * The name of the property which sets the estimated size in megabytes up to which the in memory cache keeps
+     * override tables. Only the session which creates the cache of the JVM sets it. <br />
+     * ex: -DdependencyManagement.memoryCache.maxSize=128
+     */
+    private static final String MEMORY_CACHE_SIZE_PROPERTY = "dependencyManagement.memoryCache.maxSize";
+
+    /**
+     * Default estimated size in megabytes of the override tables kept in memory
+     */
+    private static final String DEFAULT_MEMORY_CACHE_SIZE = "64";
+
+    /**
+     * The name of the property which sets how many minutes an override table which depends on a SNAPSHOT pom is kept
+     * in memory. <br />
+     * ex: -DdependencyManagement.snapshotTtl=5
+     */
+    private static final String SNAPSHOT_TTL_PROPERTY = "dependencyManagement.snapshotTtl";
+
+    /**
+     * Default number of minutes for which an override table of a SNAPSHOT pom is kept in memory
+     */
+    private static final String DEFAULT_SNAPSHOT_TTL = "1";
+
+    /**
+     * Maximum number of remote poms which are resolved and built at the same time
+     */
+    private static final int MAX_RESOLVER_THREADS = 8;
 
     private MavenSession session;
 
+    private ExtensionConfiguration configuration;
+
+    /**
+     * Created on first use by getRepositorySystem()
+     */
     private RepositorySystem repositorySystem;
 
     private ArtifactResolver resolver;
 
     private ModelBuilder modelBuilder;
 
+    /**
+     * Persistent cache of extracted override tables, null if disabled
+     */
+    private OverrideTableCache overrideCache;
+
+    /**
+     * In memory cache of override tables shared by the sessions of the JVM, null if disabled
+     */
+    private OverrideTableMemoryCache memoryCache;
+
+    /**
+     * How long this session uses in memory tables which depend on a SNAPSHOT pom, in milliseconds
+     */
+    private long snapshotTimeToLive;
+
+    /**
+     * Persistent record of remote poms which could not be found, null if disabled
+     */
+    private MissingArtifactCache missingArtifacts;
+
+    /**
+     * Whether to look for alignment catalogs before building the effective model of a remote pom
+     */
+    private boolean useCatalogs;
+
+    /**
+     * Thread pool used to resolve and build remote poms concurrently. Null until first used.
+     */
+    private ExecutorService resolverPool;
+
+    /**
+     * Override tables submitted for background resolution during this session, keyed by kind and GAV
+     */
+    private final ConcurrentMap<String, Future<Map<String, String>>> pendingOverrides =
+        new ConcurrentHashMap<String, Future<Map<String, String>>>();
+
+    /**
+     * Remote poms resolved during this session, keyed by GAV
+     */
+    private final SingleFlightCache<Artifact> resolvedPoms = new SingleFlightCache<Artifact>();
+
+    /**
+     * Effective models of remote poms built during this session, keyed by GAV
+     */
+    private final SingleFlightCache<ModelBuildingResult> effectiveModels =
+        new SingleFlightCache<ModelBuildingResult>();
+
+    /**
+     * Remote poms read by the streaming fast path during this session, keyed by GAV. Null for poms which need their
+     * effective model to be built.
+     */
+    private final SingleFlightCache<StreamedPom> streamedPoms = new SingleFlightCache<StreamedPom>();
+
+    /**
+     * Raw parent models and imported dependency management read while building remote poms during this session
+     */
+    private final SessionModelCache modelCache = new SessionModelCache();
+
+    /**
+     * The parents and imported poms each effective model of this session was built from, keyed by GAV
+     */
+    private final ConcurrentMap<String, Set<String>> modelPoms = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Repository lists aggregated by the model resolvers during this session
+     */
+    private RepositoryListCache repositoryListCache;
+
     /**
      * Repositories for downloading remote poms
      */
@@ -113,22 +287,75 @@ public class EffectiveModelBuilder
     }
 
     /**
-     * Private constructor for singleton
+     * Create the builder of a session. Each session gets its own builder, so that sessions running in the same JVM,
+     * such as in a build daemon, never share remote poms, repositories or configuration.
+     *
+     * @param session The session
+     * @param configuration The configuration of the session
+     * @param resolver The artifact resolver
+     * @param modelBuilder The model builder
      */
-    private EffectiveModelBuilder()
+    public EffectiveModelBuilder( MavenSession session, ExtensionConfiguration configuration,
+                                  ArtifactResolver resolver, ModelBuilder modelBuilder )
     {
-
+        this.session = session;
+        this.configuration = configuration;
+        this.resolver = resolver;
+        this.modelBuilder = modelBuilder;
+        this.repositoryListCache =
+            new RepositoryListCache( session.getRepositorySession(), new DefaultRemoteRepositoryManager() );
+        if ( configuration.getBooleanProperty( OVERRIDE_CACHE_PROPERTY, true ) )
+        {
+            File localRepository = session.getRepositorySession().getLocalRepository().getBasedir();
+            this.overrideCache = new OverrideTableCache( localRepository );
+        }
+        if ( configuration.getBooleanProperty( MISSING_CACHE_PROPERTY, true )
+            && !RepositoryPolicy.UPDATE_POLICY_ALWAYS.equals( session.getRepositorySession().getUpdatePolicy() ) )
+        {
+            File localRepository = session.getRepositorySession().getLocalRepository().getBasedir();
+            long timeToLive = getLongProperty( configuration, MISSING_TTL_PROPERTY, DEFAULT_MISSING_TTL );
+            this.missingArtifacts =
+                new MissingArtifactCache( localRepository, TimeUnit.MINUTES.toMillis( timeToLive ) );
+        }
+        if ( configuration.getBooleanProperty( MEMORY_CACHE_PROPERTY, true ) )
+        {
+            long maxTables =
+                getLongProperty( configuration, MEMORY_CACHE_TABLES_PROPERTY, DEFAULT_MEMORY_CACHE_TABLES );
+            long maxSize = getLongProperty( configuration, MEMORY_CACHE_SIZE_PROPERTY, DEFAULT_MEMORY_CACHE_SIZE );
+            long snapshotTtl = getLongProperty( configuration, SNAPSHOT_TTL_PROPERTY, DEFAULT_SNAPSHOT_TTL );
+            this.memoryCache = OverrideTableMemoryCache.getShared( (int) Math.min( maxTables, Integer.MAX_VALUE ),
+                                                                   maxSize * 1024 * 1024 );
+            this.snapshotTimeToLive = TimeUnit.MINUTES.toMillis( snapshotTtl );
+        }
+        this.useCatalogs = configuration.getBooleanProperty( CATALOG_PROPERTY, false );
+        initRepositories( session.getRequest().getRemoteRepositories() );
     }
 
-    public static void init( MavenSession session, ArtifactResolver resolver, ModelBuilder modelBuilder )
-        throws ComponentLookupException, PlexusContainerException
+    /**
+     * Get a property holding a number which can't be negative
+     *
+     * @param configuration The configuration of the session
+     * @param name The name of the property
+     * @param defaultValue The value used when the property is not set or invalid
+     * @return The value of the property
+     */
+    private static long getLongProperty( ExtensionConfiguration configuration, String name, String defaultValue )
     {
-        instance = new EffectiveModelBuilder();
-        instance.session = session;
-        instance.repositorySystem = newRepositorySystem();
-        instance.resolver = resolver;
-        instance.modelBuilder = modelBuilder;
-        initRepositories( session.getRequest().getRemoteRepositories() );
+        String value = configuration.getProperty( name, defaultValue );
+        try
+        {
+            long longValue = Long.parseLong( value.trim() );
+            if ( longValue >= 0 )
+            {
+                return longValue;
+            }
+        }
+        catch ( NumberFormatException e )
+        {
+            // Reported below
+        }
+        Log.getLog().warn( "Ignoring invalid " + name + ": " + value );
+        return Long.parseLong( defaultValue );
     }
 
     /**
@@ -136,43 +363,92 @@ public class EffectiveModelBuilder
      *
      * @param repositories
      */
-    private static void initRepositories( List<ArtifactRepository> repositories )
+    private void initRepositories( List<ArtifactRepository> repositories )
     {
         if ( repositories == null || repositories.size() == 0 )
         {
             // Set default repository list to include Maven central
             String remoteRepoUrl = "http://repo.maven.apache.org/maven2";
-            instance.getRepositories().add( new RemoteRepository( "central", "default", remoteRepoUrl ) );
+            getRepositories().add( new RemoteRepository( "central", "default", remoteRepoUrl ) );
         }
         for ( ArtifactRepository artifactRepository : repositories )
         {
-            instance.addRepository( artifactRepository );
+            addRepository( artifactRepository );
         }
     }
 
     /**
-     * Return the instance. Will return "null" until init() has been called.
-     *
-     * @return the initialized instance or null if it hasn't been initialized yet
+     * Stop resolving remote poms in the background. Called when the session ends; remote poms which are still being
+     * resolved are no longer needed.
      */
-    public static EffectiveModelBuilder getInstance()
+    public synchronized void close()
     {
-        return instance;
+        if ( resolverPool != null )
+        {
+            resolverPool.shutdownNow();
+            resolverPool = null;
+        }
+        pendingOverrides.clear();
+        if ( memoryCache != null )
+        {
+            memoryCache.logStatistics();
+        }
     }
 
     public Map<String, String> getRemoteDependencyVersionOverrides( String gav )
         throws ArtifactResolutionException, ArtifactDescriptorException, ModelBuildingException
     {
-        Map<String, String> versionOverrides = new HashMap<String, String>();
-
         Log.getLog().debug( "Resolving dependency management GAV: " + gav );
+        if ( useCatalogs )
+        {
+            Map<String, String> catalog = loadCatalog( gav );
+            if ( catalog != null )
+            {
+                return catalog;
+            }
+        }
+
+        Map<String, String> versionOverrides = getMemoryCachedTable( OverrideTableCache.DEPENDENCY_OVERRIDES, gav );
+        if ( versionOverrides != null )
+        {
+            return versionOverrides;
+        }
+
         Artifact artifact = resolvePom( gav );
 
-        ModelResolver modelResolver = this.newModelResolver();
+        versionOverrides = loadCachedTable( OverrideTableCache.DEPENDENCY_OVERRIDES, gav, artifact );
+        if ( versionOverrides != null )
+        {
+            return versionOverrides;
+        }
+
+        StreamedPom streamedPom = streamPom( gav, artifact );
+        if ( streamedPom != null && streamedPom.getManagedVersions() != null )
+        {
+            return cacheTable( OverrideTableCache.DEPENDENCY_OVERRIDES, gav, artifact,
+                               Collections.<String> emptySet(), streamedPom.getManagedVersions() );
+        }
 
-        Model effectiveModel = buildModel( artifact.getFile(), modelResolver );
+        ModelBuildingResult result = getEffectiveModel( gav, artifact );
+        Model effectiveModel = result.getEffectiveModel();
         Log.getLog().debug( "Built model for project: " + effectiveModel.getName() );
 
+        versionOverrides = getDependencyManagementVersions( effectiveModel );
+
+        return cacheTable( OverrideTableCache.DEPENDENCY_OVERRIDES, gav, artifact, getModelPoms( gav, result ),
+                           versionOverrides );
+    }
+
+    /**
+     * Extract the managed dependency versions of an effective model
+     *
+     * @param effectiveModel The effective model of a BOM
+     * @return Map between the groupId:artifactId and the version of each managed dependency
+     * @throws ModelBuildingException If the model has no dependency management
+     */
+    static Map<String, String> getDependencyManagementVersions( Model effectiveModel )
+        throws ModelBuildingException
+    {
         if ( effectiveModel.getDependencyManagement() == null )
         {
             ModelProblem dmp = new DefaultModelProblem(
@@ -181,16 +457,65 @@ public class EffectiveModelBuilder
             throw new ModelBuildingException( effectiveModel, effectiveModel.getId(), Collections.singletonList( dmp ) );
         }
 
+        Map<String, String> versionOverrides = new HashMap<String, String>();
         for ( org.apache.maven.model.Dependency dep : effectiveModel.getDependencyManagement().getDependencies() )
         {
             String groupIdArtifactId = dep.getGroupId() + ":" + dep.getArtifactId();
             versionOverrides.put( groupIdArtifactId, dep.getVersion() );
             Log.getLog().debug( "Added version override for: " + groupIdArtifactId + ":" + dep.getVersion() );
         }
-
         return versionOverrides;
     }
 
+    /**
+     * Resolve and open the alignment catalog published next to a BOM
+     *
+     * @param gav The GAV of the BOM
+     * @return The catalog, or null if there is no usable catalog for the BOM
+     */
+    private Map<String, String> loadCatalog( String gav )
+    {
+        String[] gavParts = gav.trim().split( ":" );
+        Artifact catalogArtifact =
+            new DefaultArtifact( gavParts[0], gavParts[1], AlignmentCatalog.EXTENSION, gavParts[2] );
+        try
+        {
+            File catalogFile = resolveArtifact( catalogArtifact ).getFile();
+            AlignmentCatalog catalog = AlignmentCatalog.open( catalogFile );
+            Log.getLog().debug( "Using alignment catalog " + catalogFile + " with " + catalog.size() + " entries" );
+            return catalog;
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            Log.getLog().debug( "No alignment catalog for " + gav + ", building its effective model" );
+        }
+        catch ( IOException e )
+        {
+            Log.getLog().warn( e.getMessage() + ", building the effective model of " + gav + " instead" );
+        }
+        return null;
+    }
+
+    /**
+     * Start resolving the dependency management of a remote pom in the background. Each GAV is only submitted once
+     * per session, later calls return the same pending result.
+     *
+     * @param gav The GAV of the remote pom
+     * @return The pending result of getRemoteDependencyVersionOverrides(gav)
+     */
+    public Future<Map<String, String>> submitRemoteDependencyVersionOverrides( final String gav )
+    {
+        return submitOnce( OverrideTableCache.DEPENDENCY_OVERRIDES, gav, new Callable<Map<String, String>>()
+        {
+            @Override
+            public Map<String, String> call()
+                throws Exception
+            {
+                return getRemoteDependencyVersionOverrides( gav );
+            }
+        } );
+    }
+
     public Map<String, String> getRemoteDependencyVersionOverridesOld( String gav )
         throws ArtifactResolutionException, ArtifactDescriptorException
     {
@@ -214,16 +539,49 @@ public class EffectiveModelBuilder
     {
         Log.getLog().debug( "Resolving remote property mapping POM: " + gav );
 
+        Properties versionOverrides = new Properties();
+
+        Map<String, String> cachedOverrides = getMemoryCachedTable( OverrideTableCache.PROPERTY_OVERRIDES, gav );
+        if ( cachedOverrides != null )
+        {
+            versionOverrides.putAll( cachedOverrides );
+            return versionOverrides;
+        }
+
         Artifact artifact = resolvePom( gav );
 
-        ModelResolver modelResolver = this.newModelResolver();
+        cachedOverrides = loadCachedTable( OverrideTableCache.PROPERTY_OVERRIDES, gav, artifact );
+        if ( cachedOverrides != null )
+        {
+            versionOverrides.putAll( cachedOverrides );
+            return versionOverrides;
+        }
 
-        Model effectiveModel = buildModel( artifact.getFile(), modelResolver );
+        Collection<String> modelPoms;
+        StreamedPom streamedPom = streamPom( gav, artifact );
+        if ( streamedPom != null )
+        {
+            versionOverrides.putAll( streamedPom.getProperties() );
+            modelPoms = Collections.emptySet();
+        }
+        else
+        {
+            ModelBuildingResult result = getEffectiveModel( gav, artifact );
 
-        Properties versionOverrides = effectiveModel.getProperties();
+            // Copy the properties, the effective model is shared with the other overriders
+            versionOverrides.putAll( result.getEffectiveModel().getProperties() );
+            modelPoms = getModelPoms( gav, result );
+        }
 
         Log.getLog().debug( "Returning override of " + versionOverrides);
 
+        Map<String, String> table = new HashMap<String, String>();
+        for ( String name : versionOverrides.stringPropertyNames() )
+        {
+            table.put( name, versionOverrides.getProperty( name ) );
+        }
+        cacheTable( OverrideTableCache.PROPERTY_OVERRIDES, gav, artifact, modelPoms, table );
+
         return versionOverrides;
     }
 
@@ -233,15 +591,25 @@ public class EffectiveModelBuilder
     {
         Log.getLog().debug( "Resolving remote plugin management POM: " + gav );
 
+        Map<String, String> versionOverrides = getMemoryCachedTable( OverrideTableCache.PLUGIN_OVERRIDES, gav );
+        if ( versionOverrides != null )
+        {
+            return versionOverrides;
+        }
+
         Artifact artifact = resolvePom( gav );
 
-        ModelResolver modelResolver = this.newModelResolver();
+        versionOverrides = loadCachedTable( OverrideTableCache.PLUGIN_OVERRIDES, gav, artifact );
+        if ( versionOverrides != null )
+        {
+            return versionOverrides;
+        }
 
-        Model effectiveModel = buildModel( artifact.getFile(), modelResolver );
+        ModelBuildingResult result = getEffectiveModel( gav, artifact );
 
-        List<Plugin> plugins = effectiveModel.getBuild().getPluginManagement().getPlugins();
+        List<Plugin> plugins = result.getEffectiveModel().getBuild().getPluginManagement().getPlugins();
 
-        Map<String, String> versionOverrides = new HashMap<String, String>();
+        versionOverrides = new HashMap<String, String>();
 
         for ( Plugin plugin : plugins )
         {
@@ -249,8 +617,29 @@ public class EffectiveModelBuilder
             versionOverrides.put( groupIdArtifactId, plugin.getVersion() );
         }
 
-        return versionOverrides;
+        return cacheTable( OverrideTableCache.PLUGIN_OVERRIDES, gav, artifact, getModelPoms( gav, result ),
+                           versionOverrides );
+
+    }
 
+    /**
+     * Start resolving the plugin management of a remote pom in the background. Each GAV is only submitted once per
+     * session, later calls return the same pending result.
+     *
+     * @param gav The GAV of the remote pom
+     * @return The pending result of getRemotePluginVersionOverrides(gav)
+     */
+    public Future<Map<String, String>> submitRemotePluginVersionOverrides( final String gav )
+    {
+        return submitOnce( OverrideTableCache.PLUGIN_OVERRIDES, gav, new Callable<Map<String, String>>()
+        {
+            @Override
+            public Map<String, String> call()
+                throws Exception
+            {
+                return getRemotePluginVersionOverrides( gav );
+            }
+        } );
     }
 
     public ArtifactDescriptorResult resolveRemoteArtifactDescriptor( String gav )
@@ -267,7 +656,8 @@ public class EffectiveModelBuilder
         descRequest.setArtifact( artifact );
         descRequest.setRepositories( getRepositories() );
 
-        ArtifactDescriptorResult descResult = repositorySystem.readArtifactDescriptor( repoSession, descRequest );
+        ArtifactDescriptorResult descResult =
+            getRepositorySystem( descRequest ).readArtifactDescriptor( repoSession, descRequest );
         for ( Dependency dep : descResult.getManagedDependencies() )
         {
             Log.getLog().info( "Remote managed dep: " + dep );
@@ -282,20 +672,315 @@ public class EffectiveModelBuilder
      * Build the effective model for the given pom file
      *
      * @param pomFile
-     * @return effective pom model
+     * @param modelResolver The resolver of parents and imported poms
+     * @param cache The cache of parents and imported poms
+     * @return the result containing the effective pom model and its lineage
      * @throws ModelBuildingException
      */
-    private Model buildModel( File pomFile, ModelResolver modelResolver )
+    private ModelBuildingResult buildModel( File pomFile, ModelResolver modelResolver, ModelCache cache )
         throws ModelBuildingException
     {
         ModelBuildingRequest request = new DefaultModelBuildingRequest();
         request.setPomFile( pomFile );
         request.setModelResolver( modelResolver );
+        request.setModelCache( cache );
         request.setValidationLevel( ModelBuildingRequest.VALIDATION_LEVEL_MAVEN_3_0 );
         request.setTwoPhaseBuilding( false ); // Resolve the complete model in one step
-        request.setSystemProperties( System.getProperties() );
-        ModelBuildingResult result = modelBuilder.build( request );
-        return result.getEffectiveModel();
+        request.setSystemProperties( configuration.getProperties() );
+        return modelBuilder.build( request );
+    }
+
+    /**
+     * Get the effective model of a remote pom. The model of each GAV is built at most once per session and is shared
+     * by the dependency, plugin and property overriders. Concurrent callers wait for the first one to build it.
+     *
+     * @param gav The GAV of the remote pom
+     * @param pom The resolved remote pom
+     * @return The result containing the effective pom model and its lineage
+     * @throws ModelBuildingException
+     */
+    private ModelBuildingResult getEffectiveModel( final String gav, final Artifact pom )
+        throws ModelBuildingException
+    {
+        return effectiveModels.get( gav.trim(), new Callable<ModelBuildingResult>()
+        {
+            @Override
+            public ModelBuildingResult call()
+                throws ModelBuildingException
+            {
+                Log.getLog().debug( "Building effective model of remote pom: " + gav );
+                Set<String> poms = new LinkedHashSet<String>();
+                ModelBuildingResult result = buildModel( pom.getFile(), newModelResolver(), modelCache.record( poms ) );
+                modelPoms.put( gav.trim(), poms );
+                Log.getLog().debug( "Model cache: " + modelCache.getHits() + " hits, " + modelCache.getMisses() +
+                                        " misses; repository list cache: " + repositoryListCache.getHits() +
+                                        " hits, " + repositoryListCache.getMisses() + " misses" );
+                return result;
+            }
+        }, ModelBuildingException.class );
+    }
+
+    /**
+     * Get the poms an effective model was built from besides the remote pom itself
+     *
+     * @param gav The GAV of the remote pom
+     * @param result The effective model of the remote pom
+     * @return The GAVs of its parents followed by those of its imported poms and their parents
+     */
+    private Collection<String> getModelPoms( String gav, ModelBuildingResult result )
+    {
+        // The first model id is the pom itself, followed by its parents and finally the super pom which has no id
+        Set<String> poms = new LinkedHashSet<String>();
+        for ( String modelId : result.getModelIds().subList( 1, result.getModelIds().size() ) )
+        {
+            if ( modelId.length() > 0 )
+            {
+                poms.add( modelId );
+            }
+        }
+        Set<String> recordedPoms = modelPoms.get( gav.trim() );
+        if ( recordedPoms != null )
+        {
+            poms.addAll( recordedPoms );
+        }
+        poms.remove( gav.trim() );
+        return poms;
+    }
+
+    /**
+     * Read a remote pom with the streaming fast path. Each GAV is read at most once per session and shared by the
+     * dependency and property overriders.
+     *
+     * @param gav The GAV of the remote pom
+     * @param pom The resolved remote pom
+     * @return The parts of the pom, or null if its effective model has to be built
+     */
+    private StreamedPom streamPom( final String gav, final Artifact pom )
+    {
+        try
+        {
+            StreamedPom streamedPom = streamedPoms.get( gav.trim(), new Callable<StreamedPom>()
+            {
+                @Override
+                public StreamedPom call()
+                    throws IOException
+                {
+                    return StreamingPomReader.read( pom.getFile(), configuration.getProperties() );
+                }
+            }, IOException.class );
+            if ( streamedPom == null )
+            {
+                Log.getLog().debug( "Remote pom " + gav + " needs its effective model to be built" );
+            }
+            return streamedPom;
+        }
+        catch ( IOException e )
+        {
+            Log.getLog().debug( "Could not stream remote pom " + gav + ": " + e );
+            return null;
+        }
+    }
+
+    /**
+     * Look up a table in the in memory cache shared by the sessions of the JVM. Sessions which update snapshots (-U)
+     * don't use it, as only the persistent cache checks the poms against the remote repositories.
+     *
+     * @param kind The kind of table
+     * @param gav The GAV of the remote pom
+     * @return The cached table, or null if it is missing or out of date
+     */
+    private Map<String, String> getMemoryCachedTable( String kind, String gav )
+    {
+        if ( memoryCache == null || session.getRequest().isUpdateSnapshots() )
+        {
+            return null;
+        }
+        return memoryCache.get( kind, gav.trim(), getMemoryCacheScope(), configuration.getProperties(),
+                                snapshotTimeToLive );
+    }
+
+    /**
+     * Get the scope of this session's tables in the in memory cache, so that sessions of the JVM with another local
+     * repository or other remote repositories don't use them
+     *
+     * @return The repositories of the session, see OverrideTableMemoryCache.getScope()
+     */
+    private String getMemoryCacheScope()
+    {
+        RepositorySystemSession repositorySession = session.getRepositorySession();
+        return OverrideTableMemoryCache.getScope( repositorySession.getLocalRepository().getBasedir(),
+                                                  repositorySession.isOffline(), getRepositories() );
+    }
+
+    /**
+     * Look up a table in the persistent cache and check that the pom, its parents and its imported poms are unchanged,
+     * as well as the properties they depend on. A usable table is also kept in memory.
+     *
+     * @param kind The kind of table
+     * @param gav The GAV of the remote pom
+     * @param pom The resolved remote pom
+     * @return The cached table, or null if it is missing or out of date
+     */
+    private Map<String, String> loadCachedTable( String kind, String gav, Artifact pom )
+    {
+        if ( overrideCache == null )
+        {
+            return null;
+        }
+
+        CachedTable cached = overrideCache.load( kind, gav );
+        if ( cached == null )
+        {
+            Log.getLog().debug( "No cached " + kind + " overrides for " + gav );
+            return null;
+        }
+
+        String changedProperty = PomProperties.findChanged( cached.getProperties(), configuration.getProperties() );
+        if ( changedProperty != null )
+        {
+            Log.getLog().debug( "Cached " + kind + " overrides for " + gav + " were extracted with another value of " +
+                                    changedProperty );
+            return null;
+        }
+
+        Map<String, PomStamp> lineage = new LinkedHashMap<String, PomStamp>();
+        try
+        {
+            boolean first = true;
+            for ( Entry<String, String> pomChecksum : cached.getLineage().entrySet() )
+            {
+                File pomFile = first ? pom.getFile() : resolvePom( pomChecksum.getKey() ).getFile();
+                first = false;
+                PomStamp stamp = PomStamp.create( pomFile );
+                if ( !pomChecksum.getValue().equals( stamp.getSha1() ) )
+                {
+                    Log.getLog().debug( "Cached " + kind + " overrides for " + gav + " are out of date, " +
+                                            pomChecksum.getKey() + " has changed" );
+                    return null;
+                }
+                lineage.put( pomChecksum.getKey(), stamp );
+            }
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            Log.getLog().debug( "Cached " + kind + " overrides for " + gav + " can't be verified: " + e );
+            return null;
+        }
+        catch ( IOException e )
+        {
+            Log.getLog().debug( "Cached " + kind + " overrides for " + gav + " can't be verified: " + e );
+            return null;
+        }
+
+        Log.getLog().debug( "Using cached " + kind + " overrides for " + gav );
+        if ( memoryCache != null )
+        {
+            return memoryCache.put( kind, gav.trim(), getMemoryCacheScope(), lineage, cached.getProperties(),
+                                    cached.getTable() );
+        }
+        return cached.getTable();
+    }
+
+    /**
+     * Store a table in the persistent cache and in memory, along with the state of the pom and of every pom its model
+     * was built from, and the values of the properties those poms depend on.
+     *
+     * @param kind The kind of table
+     * @param gav The GAV of the remote pom
+     * @param pom The resolved remote pom
+     * @param modelPoms The GAVs of the parents and imported poms of the pom, see getModelPoms()
+     * @param table The extracted table
+     * @return The table, which must not be modified once it is kept in memory
+     */
+    private Map<String, String> cacheTable( String kind, String gav, Artifact pom, Collection<String> modelPoms,
+                                            Map<String, String> table )
+    {
+        if ( overrideCache == null && memoryCache == null )
+        {
+            return table;
+        }
+
+        Map<String, PomStamp> lineage = new LinkedHashMap<String, PomStamp>();
+        Map<String, String> properties;
+        try
+        {
+            lineage.put( gav.trim(), PomStamp.create( pom.getFile() ) );
+            for ( String modelPom : modelPoms )
+            {
+                lineage.put( modelPom, PomStamp.create( resolvePom( modelPom ).getFile() ) );
+            }
+            List<File> pomFiles = new ArrayList<File>();
+            for ( PomStamp stamp : lineage.values() )
+            {
+                pomFiles.add( stamp.getFile() );
+            }
+            properties = PomProperties.read( pomFiles, configuration.getProperties() );
+            if ( properties == null )
+            {
+                Log.getLog().debug( "Not caching " + kind + " overrides for " + gav
+                                        + ": a profile of its poms is activated by a file" );
+                return table;
+            }
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            Log.getLog().debug( "Not caching " + kind + " overrides for " + gav + ": " + e );
+            return table;
+        }
+        catch ( IOException e )
+        {
+            Log.getLog().debug( "Not caching " + kind + " overrides for " + gav + ": " + e );
+            return table;
+        }
+
+        if ( overrideCache != null )
+        {
+            Map<String, String> checksums = new LinkedHashMap<String, String>();
+            for ( Entry<String, PomStamp> stamp : lineage.entrySet() )
+            {
+                checksums.put( stamp.getKey(), stamp.getValue().getSha1() );
+            }
+            overrideCache.store( kind, gav, checksums, properties, table );
+        }
+        if ( memoryCache != null )
+        {
+            return memoryCache.put( kind, gav.trim(), getMemoryCacheScope(), lineage, properties, table );
+        }
+        return table;
+    }
+
+    /**
+     * Get the repository system, creating it on first use. Creating it needs a new plexus container, which is only
+     * worth the cost for the few lookups that read artifact descriptors.
+     *
+     * @param request The request which needs the repository system, used to report a failure
+     * @return RepositorySystem
+     * @throws ArtifactDescriptorException If the repository system can't be created
+     */
+    private synchronized RepositorySystem getRepositorySystem( ArtifactDescriptorRequest request )
+        throws ArtifactDescriptorException
+    {
+        if ( repositorySystem == null )
+        {
+            Exception failure;
+            try
+            {
+                repositorySystem = newRepositorySystem();
+                return repositorySystem;
+            }
+            catch ( ComponentLookupException e )
+            {
+                failure = e;
+            }
+            catch ( PlexusContainerException e )
+            {
+                failure = e;
+            }
+            ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+            result.addException( failure );
+            throw new ArtifactDescriptorException( result );
+        }
+        return repositorySystem;
     }
 
     /**
@@ -318,19 +1003,27 @@ public class EffectiveModelBuilder
      * @return The resolved pom artifact
      * @throws ArtifactResolutionException
      */
-    private Artifact resolvePom( String gav )
+    private Artifact resolvePom( final String gav )
         throws ArtifactResolutionException
     {
-        String[] gavParts = gav.split( ":" );
-        String groupId = gavParts[0];
-        String artifactId = gavParts[1];
-        String version = gavParts[2];
-        String extension = "pom";
+        return resolvedPoms.get( gav.trim(), new Callable<Artifact>()
+        {
+            @Override
+            public Artifact call()
+                throws ArtifactResolutionException
+            {
+                String[] gavParts = gav.split( ":" );
+                String groupId = gavParts[0];
+                String artifactId = gavParts[1];
+                String version = gavParts[2];
+                String extension = "pom";
 
-        Artifact artifact = new DefaultArtifact( groupId, artifactId, extension, version );
-        artifact = resolveArtifact( artifact );
+                Artifact artifact = new DefaultArtifact( groupId, artifactId, extension, version );
+                artifact = resolveArtifact( artifact );
 
-        return artifact;
+                return artifact;
+            }
+        }, ArtifactResolutionException.class );
     }
 
     /**
@@ -348,16 +1041,109 @@ public class EffectiveModelBuilder
         request.setRepositories( getRepositories() );
 
         RepositorySystemSession repositorySession = session.getRepositorySession();
-        ArtifactResult result = resolver.resolveArtifact( repositorySession, request );
-        return result.getArtifact();
+        return resolveArtifact( resolver, repositorySession, request, missingArtifacts );
+    }
+
+    /**
+     * Resolve an artifact, failing fast if it is known to be missing
+     *
+     * @param resolver The artifact resolver
+     * @param repositorySession The repository session
+     * @param request The request
+     * @param missingArtifacts The record of missing artifacts, or null to always contact the remote repositories
+     * @return The resolved artifact
+     * @throws ArtifactResolutionException If the artifact can't be resolved or is known to be missing
+     */
+    static Artifact resolveArtifact( ArtifactResolver resolver, RepositorySystemSession repositorySession,
+                                     ArtifactRequest request, MissingArtifactCache missingArtifacts )
+        throws ArtifactResolutionException
+    {
+        if ( missingArtifacts == null )
+        {
+            return resolver.resolveArtifact( repositorySession, request ).getArtifact();
+        }
+
+        missingArtifacts.check( repositorySession, request );
+        try
+        {
+            ArtifactResult result = resolver.resolveArtifact( repositorySession, request );
+            missingArtifacts.recordSuccess( result.getArtifact() );
+            return result.getArtifact();
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            missingArtifacts.recordFailure( e );
+            throw e;
+        }
+    }
+
+    /**
+     * Run a table extraction on the resolver pool, unless the same table has already been submitted.
+     *
+     * @param kind The kind of table
+     * @param gav The GAV of the remote pom
+     * @param extraction Extracts the table from the remote pom
+     * @return The pending result of the first submission for this table
+     */
+    private Future<Map<String, String>> submitOnce( String kind, String gav, Callable<Map<String, String>> extraction )
+    {
+        String key = kind + ":" + gav.trim();
+        Future<Map<String, String>> pending = pendingOverrides.get( key );
+        if ( pending == null )
+        {
+            FutureTask<Map<String, String>> task = new FutureTask<Map<String, String>>( extraction );
+            pending = pendingOverrides.putIfAbsent( key, task );
+            if ( pending == null )
+            {
+                pending = task;
+                getResolverPool().execute( task );
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Get the pool used for resolving remote poms. The threads are daemons and time out when idle, and the pool is
+     * shut down when the session ends.
+     *
+     * @return The resolver thread pool
+     */
+    private synchronized ExecutorService getResolverPool()
+    {
+        if ( resolverPool == null )
+        {
+            ThreadPoolExecutor pool =
+                new ThreadPoolExecutor( MAX_RESOLVER_THREADS, MAX_RESOLVER_THREADS, 30, TimeUnit.SECONDS,
+                                        new LinkedBlockingQueue<Runnable>(), new ResolverThreadFactory() );
+            pool.allowCoreThreadTimeOut( true );
+            resolverPool = pool;
+        }
+        return resolverPool;
     }
 
     private ModelResolver newModelResolver()
     {
-        RemoteRepositoryManager repoMgr = new DefaultRemoteRepositoryManager();
         ModelResolver modelResolver =
-            new BasicModelResolver( session.getRepositorySession(), resolver, repoMgr, getRepositories() );
+            new BasicModelResolver( session.getRepositorySession(), resolver, repositoryListCache, missingArtifacts,
+                                    getRepositories() );
 
         return modelResolver;
     }
+
+    /**
+     * Creates named daemon threads for the resolver pool
+     */
+    private static class ResolverThreadFactory
+        implements ThreadFactory
+    {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, "mvndepext-resolver-" + threadCount.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
 }
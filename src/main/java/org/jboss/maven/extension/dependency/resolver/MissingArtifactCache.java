@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.resolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.jboss.maven.extension.dependency.util.Log;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.LocalRepositoryManager;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactRequest;
+import org.sonatype.aether.resolution.ArtifactResolutionException;
+import org.sonatype.aether.resolution.ArtifactResult;
+import org.sonatype.aether.transfer.ArtifactNotFoundException;
+
+/**
+ * Persistent record of remote poms and catalogs which could not be found in any repository. A marker file is kept in
+ * the local repository for each missing artifact, and the artifact is reported as missing without contacting the
+ * remote repositories until the marker is older than the time to live. The marker holds the ids and URLs of the
+ * repositories which were searched, and only applies to requests for the same repositories. Only artifacts which every
+ * repository reported as not found are recorded, so transfer errors such as timeouts are retried on the next build.
+ */
+public class MissingArtifactCache
+{
+    private final File cacheDir;
+
+    private final long timeToLive;
+
+    /**
+     * @param localRepository The base directory of the local repository in which to keep the markers
+     * @param timeToLive How long an artifact is reported as missing, in milliseconds
+     */
+    public MissingArtifactCache( File localRepository, long timeToLive )
+    {
+        this.cacheDir = new File( localRepository, OverrideTableCache.CACHE_PATH );
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Fail fast if the requested artifact was recently found to be missing. An artifact which has since been installed
+     * into the local repository is not reported as missing.
+     *
+     * @param session The repository session
+     * @param request The resolution request about to be made
+     * @throws ArtifactResolutionException If the artifact is known to be missing
+     */
+    public void check( RepositorySystemSession session, ArtifactRequest request )
+        throws ArtifactResolutionException
+    {
+        Artifact artifact = request.getArtifact();
+        File marker = getMarkerFile( artifact );
+        long age = System.currentTimeMillis() - marker.lastModified();
+        if ( !marker.isFile() || age >= timeToLive )
+        {
+            return;
+        }
+        try
+        {
+            if ( !getRepositoriesKey( request.getRepositories() ).equals( FileUtils.fileRead( marker, "UTF-8" ) ) )
+            {
+                Log.getLog().debug( artifact + " was not found in other repositories, looking it up again" );
+                return;
+            }
+        }
+        catch ( IOException e )
+        {
+            return;
+        }
+        LocalRepositoryManager localRepositoryManager = session.getLocalRepositoryManager();
+        File localFile =
+            new File( localRepositoryManager.getRepository().getBasedir(),
+                      localRepositoryManager.getPathForLocalArtifact( artifact ) );
+        if ( localFile.isFile() )
+        {
+            return;
+        }
+
+        String message = artifact + " was not found in any repository " + ( age / 1000 ) +
+            " seconds ago, resolution will not be reattempted until the missing artifact cache entry " + marker +
+            " expires";
+        Log.getLog().debug( message );
+        ArtifactResult result = new ArtifactResult( request );
+        result.addException( new ArtifactNotFoundException( artifact, null, message ) );
+        throw new ArtifactResolutionException( Collections.singletonList( result ) );
+    }
+
+    /**
+     * Record the outcome of a resolution. An artifact which every repository reported as not found gets a marker,
+     * other failures are not recorded.
+     *
+     * @param failure The resolution failure
+     */
+    public void recordFailure( ArtifactResolutionException failure )
+    {
+        ArtifactResult result = failure.getResult();
+        if ( result == null || !result.isMissing() )
+        {
+            return;
+        }
+
+        File marker = getMarkerFile( result.getRequest().getArtifact() );
+        try
+        {
+            marker.getParentFile().mkdirs();
+            String repositories = getRepositoriesKey( result.getRequest().getRepositories() );
+            FileUtils.fileWrite( marker.getPath(), "UTF-8", repositories );
+        }
+        catch ( IOException e )
+        {
+            Log.getLog().debug( "Could not record missing artifact " + result.getRequest().getArtifact() + ": " + e );
+        }
+    }
+
+    /**
+     * Remove the marker of an artifact which has been resolved
+     *
+     * @param artifact The resolved artifact
+     */
+    public void recordSuccess( Artifact artifact )
+    {
+        File marker = getMarkerFile( artifact );
+        if ( marker.isFile() )
+        {
+            marker.delete();
+        }
+    }
+
+    /**
+     * Describe the repositories an artifact is looked up in, one "id url" per line
+     */
+    static String getRepositoriesKey( List<RemoteRepository> repositories )
+    {
+        StringBuilder key = new StringBuilder();
+        for ( RemoteRepository repository : repositories )
+        {
+            key.append( repository.getId() ).append( ' ' ).append( repository.getUrl() ).append( '\n' );
+        }
+        return key.toString();
+    }
+
+    private File getMarkerFile( Artifact artifact )
+    {
+        File versionDir =
+            new File( new File( new File( cacheDir, artifact.getGroupId() ), artifact.getArtifactId() ),
+                      artifact.getBaseVersion() );
+        String classifier = artifact.getClassifier().length() > 0 ? "-" + artifact.getClassifier() : "";
+        return new File( versionDir, artifact.getExtension() + classifier + ".missing" );
+    }
+}
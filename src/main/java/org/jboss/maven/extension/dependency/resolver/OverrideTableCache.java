@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.resolver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.jboss.maven.extension.dependency.util.Log;
+
+/**
+ * Persistent cache of the override tables extracted from remote poms. Each table is stored under the cache directory
+ * together with the SHA-1 of the pom it was extracted from and of every pom its model was built from, its parents and
+ * its imported poms, so that an entry is only used while none of those files have changed. The values of the session
+ * properties the poms depend on are stored as well. Entries are published with an atomic rename, so readers never need
+ * a lock; writers serialize on a lock file to avoid several processes rewriting the same entry at once.
+ */
+public class OverrideTableCache
+{
+    /**
+     * Kind of table holding dependency management versions
+     */
+    public static final String DEPENDENCY_OVERRIDES = "dependency";
+
+    /**
+     * Kind of table holding plugin management versions
+     */
+    public static final String PLUGIN_OVERRIDES = "plugin";
+
+    /**
+     * Kind of table holding property mappings
+     */
+    public static final String PROPERTY_OVERRIDES = "property";
+
+    /**
+     * Location of the cache relative to the local repository
+     */
+    static final String CACHE_PATH = ".cache" + File.separator + "maven-dependency-management-extension";
+
+    /**
+     * Marker at the start of every cache file
+     */
+    private static final int MAGIC = 0x4d444d45;
+
+    /**
+     * Version of the cache file format, increase when the format or the way cached tables are checked changes
+     */
+    private static final int FORMAT_VERSION = 4;
+
+    private final File cacheDir;
+
+    /**
+     * @param localRepository The base directory of the local repository in which to keep the cache
+     */
+    public OverrideTableCache( File localRepository )
+    {
+        this.cacheDir = new File( localRepository, CACHE_PATH );
+    }
+
+    /**
+     * Read a cached table. The caller is responsible for checking that the lineage checksums and the property values
+     * are still current.
+     *
+     * @param kind The kind of table
+     * @param gav The groupId:artifactId:version of the pom the table was extracted from
+     * @return The cached table, or null if there is no usable entry
+     */
+    public CachedTable load( String kind, String gav )
+    {
+        File file = getCacheFile( kind, gav );
+        if ( !file.isFile() )
+        {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+            if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION )
+            {
+                Log.getLog().debug( "Ignoring cached " + kind + " overrides of " + gav + " with unknown format" );
+                return null;
+            }
+
+            Map<String, String> lineage = new LinkedHashMap<String, String>();
+            int lineageSize = in.readInt();
+            for ( int i = 0; i < lineageSize; i++ )
+            {
+                lineage.put( in.readUTF(), in.readUTF() );
+            }
+
+            Map<String, String> properties = readMap( in );
+
+            return new CachedTable( lineage, properties, readMap( in ) );
+        }
+        catch ( IOException e )
+        {
+            Log.getLog().debug( "Ignoring unreadable cache entry " + file + ": " + e );
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Store a table in the cache, replacing any existing entry. Synchronized because file locks are held on behalf of
+     * the whole JVM, so they can't keep threads of this process apart.
+     *
+     * @param kind The kind of table
+     * @param gav The groupId:artifactId:version of the pom the table was extracted from
+     * @param lineage The SHA-1 checksums of the pom, its parents and imported poms, keyed by GAV
+     * @param properties The values of the session properties the poms depend on, null for unset properties
+     * @param table The extracted table
+     */
+    public synchronized void store( String kind, String gav, Map<String, String> lineage,
+                                    Map<String, String> properties, Map<String, String> table )
+    {
+        File file = getCacheFile( kind, gav );
+        File dir = file.getParentFile();
+        dir.mkdirs();
+
+        RandomAccessFile lockFile = null;
+        FileLock lock = null;
+        File tmpFile = null;
+        try
+        {
+            lockFile = new RandomAccessFile( new File( dir, file.getName() + ".lock" ), "rw" );
+            lock = lockFile.getChannel().lock();
+
+            tmpFile = File.createTempFile( file.getName(), ".tmp", dir );
+            writeTable( tmpFile, lineage, properties, table );
+
+            if ( !tmpFile.renameTo( file ) )
+            {
+                // Some platforms can't rename over an existing file
+                file.delete();
+                if ( !tmpFile.renameTo( file ) )
+                {
+                    throw new IOException( "Could not rename " + tmpFile + " to " + file );
+                }
+            }
+            Log.getLog().debug( "Cached " + kind + " overrides of " + gav + " in " + file );
+        }
+        catch ( IOException e )
+        {
+            Log.getLog().warn( "Could not cache " + kind + " overrides of " + gav + ": " + e );
+        }
+        finally
+        {
+            if ( tmpFile != null && tmpFile.exists() )
+            {
+                tmpFile.delete();
+            }
+            if ( lock != null )
+            {
+                try
+                {
+                    lock.release();
+                }
+                catch ( IOException e )
+                {
+                    // The lock is released anyway when the file is closed
+                }
+            }
+            if ( lockFile != null )
+            {
+                try
+                {
+                    lockFile.close();
+                }
+                catch ( IOException e )
+                {
+                    // Nothing left to clean up
+                }
+            }
+        }
+    }
+
+    private static void writeTable( File file, Map<String, String> lineage, Map<String, String> properties,
+                                    Map<String, String> table )
+        throws IOException
+    {
+        DataOutputStream out = null;
+        try
+        {
+            out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ) ) );
+            out.writeInt( MAGIC );
+            out.writeInt( FORMAT_VERSION );
+
+            out.writeInt( lineage.size() );
+            for ( Entry<String, String> pom : lineage.entrySet() )
+            {
+                out.writeUTF( pom.getKey() );
+                out.writeUTF( pom.getValue() );
+            }
+
+            writeMap( out, properties );
+            writeMap( out, table );
+            out.flush();
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    private static Map<String, String> readMap( DataInputStream in )
+        throws IOException
+    {
+        int size = in.readInt();
+        Map<String, String> map = new HashMap<String, String>( size * 4 / 3 + 1 );
+        for ( int i = 0; i < size; i++ )
+        {
+            String key = in.readUTF();
+            String value = in.readBoolean() ? in.readUTF() : null;
+            map.put( key, value );
+        }
+        return map;
+    }
+
+    private static void writeMap( DataOutputStream out, Map<String, String> map )
+        throws IOException
+    {
+        out.writeInt( map.size() );
+        for ( Entry<String, String> entry : map.entrySet() )
+        {
+            out.writeUTF( entry.getKey() );
+            out.writeBoolean( entry.getValue() != null );
+            if ( entry.getValue() != null )
+            {
+                out.writeUTF( entry.getValue() );
+            }
+        }
+    }
+
+    private File getCacheFile( String kind, String gav )
+    {
+        String[] gavParts = gav.trim().split( ":" );
+        File versionDir =
+            new File( new File( new File( cacheDir, gavParts[0] ), gavParts[1] ), gavParts[2] );
+        return new File( versionDir, kind + ".cache" );
+    }
+
+    /**
+     * A table read from the cache along with the checksums and properties it was created from
+     */
+    public static class CachedTable
+    {
+        private final Map<String, String> lineage;
+
+        private final Map<String, String> properties;
+
+        private final Map<String, String> table;
+
+        CachedTable( Map<String, String> lineage, Map<String, String> properties, Map<String, String> table )
+        {
+            this.lineage = lineage;
+            this.properties = properties;
+            this.table = table;
+        }
+
+        /**
+         * @return SHA-1 checksums of the pom, its parents and imported poms, keyed by GAV
+         */
+        public Map<String, String> getLineage()
+        {
+            return lineage;
+        }
+
+        /**
+         * @return The values of the session properties the poms depend on, null for unset properties
+         */
+        public Map<String, String> getProperties()
+        {
+            return properties;
+        }
+
+        /**
+         * @return The cached table
+         */
+        public Map<String, String> getTable()
+        {
+            return table;
+        }
+    }
+}
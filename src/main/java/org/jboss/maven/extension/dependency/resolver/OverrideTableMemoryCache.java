@@ -0,0 +1,432 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.resolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import org.jboss.maven.extension.dependency.util.ChecksumUtil;
+import org.jboss.maven.extension.dependency.util.Log;
+import org.sonatype.aether.repository.RemoteRepository;
+
+/**
+ * In memory cache of the override tables extracted from remote poms, shared by every session in the JVM so that a
+ * build daemon doesn't rebuild the same BOMs for each build. The least recently used tables are evicted once the cache
+ * holds more than a maximum number of tables or more than a maximum estimated size. Those bounds are fixed by the
+ * session which creates the cache, so that sessions running at the same time never change them for each other.
+ * <p>
+ * A table is used while the pom it was extracted from and every parent and imported pom of its model are unchanged.
+ * The files are compared by timestamp and size, and only checksummed again when those differ. Tables which depend on a
+ * SNAPSHOT pom are also dropped after a time to live, so that newer snapshots are looked up in the remote
+ * repositories. A table is only used by sessions which give the properties its poms depend on the same values, and which
+ * resolve poms with the same local repository and remote repositories.
+ */
+class OverrideTableMemoryCache
+{
+    /**
+     * Rough number of bytes taken by a map entry and its two strings, not counting the characters
+     */
+    private static final int ENTRY_OVERHEAD = 112;
+
+    /**
+     * Rough number of bytes taken by a cached table without its entries
+     */
+    private static final int TABLE_OVERHEAD = 256;
+
+    private static OverrideTableMemoryCache shared;
+
+    /**
+     * Cached tables keyed by kind, GAV and repository scope, least recently used first
+     */
+    private final LinkedHashMap<String, CachedTable> tables = new LinkedHashMap<String, CachedTable>( 16, 0.75f, true );
+
+    private final int maxTables;
+
+    private final long maxBytes;
+
+    private long bytes;
+
+    private long hits;
+
+    private long misses;
+
+    private long invalidations;
+
+    private long evictions;
+
+    private OverrideTableMemoryCache( int maxTables, long maxBytes )
+    {
+        this.maxTables = maxTables;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the cache shared by every session in the JVM, creating it on first use
+     *
+     * @param maxTables The maximum number of tables to keep, ignored once the cache exists
+     * @param maxBytes The maximum estimated size of the kept tables in bytes, ignored once the cache exists
+     * @return The cache shared by every session in the JVM
+     */
+    static synchronized OverrideTableMemoryCache getShared( int maxTables, long maxBytes )
+    {
+        if ( shared == null )
+        {
+            shared = new OverrideTableMemoryCache( maxTables, maxBytes );
+        }
+        return shared;
+    }
+
+    /**
+     * Describe the repositories a session resolves poms with, so that a table is only shared by sessions which would
+     * resolve the same poms. Sessions with another local repository, other remote repositories or mirrors, or which
+     * are offline get their own tables.
+     *
+     * @param localRepository The base directory of the local repository
+     * @param offline Whether the session is offline
+     * @param repositories The remote repositories poms are resolved from
+     * @return The scope of the tables of the session
+     */
+    static String getScope( File localRepository, boolean offline, List<RemoteRepository> repositories )
+    {
+        StringBuilder scope = new StringBuilder();
+        scope.append( localRepository.getAbsolutePath() ).append( '\n' );
+        if ( offline )
+        {
+            scope.append( "offline\n" );
+        }
+        return scope.append( MissingArtifactCache.getRepositoriesKey( repositories ) ).toString();
+    }
+
+    /**
+     * Look up a table and check that the poms it was extracted from and the properties they depend on are unchanged
+     *
+     * @param kind The kind of table
+     * @param gav The GAV of the remote pom
+     * @param scope The repositories of the session, see getScope()
+     * @param properties The properties of the session
+     * @param snapshotTimeToLive How long tables which depend on a SNAPSHOT pom are used, in milliseconds
+     * @return The table, which must not be modified, or null if it is missing or out of date
+     */
+    Map<String, String> get( String kind, String gav, String scope, Properties properties, long snapshotTimeToLive )
+    {
+        String key = kind + ":" + gav + "\n" + scope;
+        CachedTable cached;
+        synchronized ( this )
+        {
+            cached = tables.get( key );
+            if ( cached == null )
+            {
+                misses++;
+                return null;
+            }
+        }
+
+        // Check the files without holding the lock, checksums can take a while
+        CachedTable current = null;
+        String changedProperty = PomProperties.findChanged( cached.getProperties(), properties );
+        if ( changedProperty == null )
+        {
+            current = revalidate( cached, snapshotTimeToLive );
+        }
+        else
+        {
+            Log.getLog().debug( "In memory " + kind + " overrides of " + gav +
+                                    " were extracted with another value of " + changedProperty );
+        }
+
+        synchronized ( this )
+        {
+            if ( current == null )
+            {
+                if ( tables.get( key ) == cached )
+                {
+                    remove( key );
+                }
+                invalidations++;
+                misses++;
+                Log.getLog().debug( "In memory " + kind + " overrides of " + gav + " are out of date" );
+                return null;
+            }
+            if ( current != cached && tables.get( key ) == cached )
+            {
+                // Same content with a new timestamp, remember it so the file isn't checksummed again
+                tables.put( key, current );
+            }
+            hits++;
+        }
+        Log.getLog().debug( "Using in memory " + kind + " overrides of " + gav );
+        return current.getTable();
+    }
+
+    /**
+     * Add a table to the cache, replacing any table with the same kind, GAV and scope
+     *
+     * @param kind The kind of table
+     * @param gav The GAV of the remote pom
+     * @param scope The repositories of the session, see getScope()
+     * @param lineage The state of the pom, its parents and imported poms, keyed by groupId:artifactId:version
+     * @param properties The values of the session properties the poms depend on, null for unset properties
+     * @param table The extracted table
+     * @return The table as cached, which must not be modified
+     */
+    Map<String, String> put( String kind, String gav, String scope, Map<String, PomStamp> lineage,
+                             Map<String, String> properties, Map<String, String> table )
+    {
+        Map<String, String> unmodifiableTable = Collections.unmodifiableMap( table );
+        long estimatedBytes = estimateSize( table );
+        boolean snapshot = false;
+        for ( String pomGav : lineage.keySet() )
+        {
+            snapshot |= pomGav.endsWith( "-SNAPSHOT" );
+        }
+        CachedTable cached =
+            new CachedTable( lineage, properties, unmodifiableTable, estimatedBytes, snapshot,
+                             System.currentTimeMillis() );
+
+        String key = kind + ":" + gav + "\n" + scope;
+        synchronized ( this )
+        {
+            remove( key );
+            if ( estimatedBytes > maxBytes )
+            {
+                Log.getLog().debug( "Not keeping " + kind + " overrides of " + gav + " in memory, about " +
+                                        estimatedBytes + " bytes is more than the cache size" );
+                return unmodifiableTable;
+            }
+            tables.put( key, cached );
+            bytes += estimatedBytes;
+            evict();
+        }
+        return unmodifiableTable;
+    }
+
+    /**
+     * Log the hits, misses and evictions since the JVM started, to help sizing the cache
+     */
+    synchronized void logStatistics()
+    {
+        Log.getLog().debug( "In memory override cache: " + hits + " hits, " + misses + " misses (" + invalidations +
+                                " out of date), " + evictions + " evictions; holding " + tables.size() + " of " +
+                                maxTables + " tables, about " + ( bytes / 1024 ) + " of " + ( maxBytes / 1024 ) +
+                                " KB" );
+    }
+
+    private void remove( String key )
+    {
+        CachedTable removed = tables.remove( key );
+        if ( removed != null )
+        {
+            bytes -= removed.getEstimatedBytes();
+        }
+    }
+
+    private void evict()
+    {
+        Iterator<Entry<String, CachedTable>> leastRecentlyUsed = tables.entrySet().iterator();
+        while ( ( tables.size() > maxTables || bytes > maxBytes ) && leastRecentlyUsed.hasNext() )
+        {
+            Entry<String, CachedTable> evicted = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            bytes -= evicted.getValue().getEstimatedBytes();
+            evictions++;
+            String evictedKey = evicted.getKey();
+            String evictedTable = evictedKey.substring( 0, evictedKey.indexOf( '\n' ) );
+            Log.getLog().debug( "Evicted in memory overrides " + evictedTable );
+        }
+    }
+
+    /**
+     * Check that the poms of a cached table are unchanged
+     *
+     * @return The table, a copy of it with updated timestamps, or null if it is out of date
+     */
+    private static CachedTable revalidate( CachedTable cached, long snapshotTimeToLive )
+    {
+        if ( cached.isSnapshot() && System.currentTimeMillis() - cached.getCreated() >= snapshotTimeToLive )
+        {
+            return null;
+        }
+
+        Map<String, PomStamp> lineage = null;
+        for ( Entry<String, PomStamp> pom : cached.getLineage().entrySet() )
+        {
+            PomStamp stamp = pom.getValue();
+            if ( stamp.isCurrent() )
+            {
+                continue;
+            }
+            try
+            {
+                PomStamp current = PomStamp.create( stamp.getFile() );
+                if ( !current.getSha1().equals( stamp.getSha1() ) )
+                {
+                    return null;
+                }
+                if ( lineage == null )
+                {
+                    lineage = new LinkedHashMap<String, PomStamp>( cached.getLineage() );
+                }
+                lineage.put( pom.getKey(), current );
+            }
+            catch ( IOException e )
+            {
+                return null;
+            }
+        }
+        return lineage == null ? cached : cached.withLineage( lineage );
+    }
+
+    private static long estimateSize( Map<String, String> table )
+    {
+        long size = TABLE_OVERHEAD;
+        for ( Entry<String, String> entry : table.entrySet() )
+        {
+            size += ENTRY_OVERHEAD + 2 * entry.getKey().length();
+            if ( entry.getValue() != null )
+            {
+                size += 2 * entry.getValue().length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The state of a pom file when a table was extracted from it
+     */
+    static class PomStamp
+    {
+        private final File file;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final String sha1;
+
+        private PomStamp( File file, long lastModified, long length, String sha1 )
+        {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.sha1 = sha1;
+        }
+
+        /**
+         * Record the current state of a pom file
+         *
+         * @param file The pom file
+         * @return The state of the file
+         * @throws IOException If the file can't be read
+         */
+        static PomStamp create( File file )
+            throws IOException
+        {
+            // Read the timestamp first, so a change made while checksumming is noticed next time
+            long lastModified = file.lastModified();
+            long length = file.length();
+            return new PomStamp( file, lastModified, length, ChecksumUtil.sha1( file ) );
+        }
+
+        File getFile()
+        {
+            return file;
+        }
+
+        /**
+         * @return The SHA-1 of the file
+         */
+        String getSha1()
+        {
+            return sha1;
+        }
+
+        /**
+         * @return Whether the file still has the recorded timestamp and size
+         */
+        boolean isCurrent()
+        {
+            return file.lastModified() == lastModified && file.length() == length && lastModified != 0;
+        }
+    }
+
+    private static class CachedTable
+    {
+        private final Map<String, PomStamp> lineage;
+
+        private final Map<String, String> properties;
+
+        private final Map<String, String> table;
+
+        private final long estimatedBytes;
+
+        private final boolean snapshot;
+
+        private final long created;
+
+        CachedTable( Map<String, PomStamp> lineage, Map<String, String> properties, Map<String, String> table,
+                     long estimatedBytes, boolean snapshot, long created )
+        {
+            this.lineage = lineage;
+            this.properties = properties;
+            this.table = table;
+            this.estimatedBytes = estimatedBytes;
+            this.snapshot = snapshot;
+            this.created = created;
+        }
+
+        CachedTable withLineage( Map<String, PomStamp> lineage )
+        {
+            return new CachedTable( lineage, properties, table, estimatedBytes, snapshot, created );
+        }
+
+        Map<String, PomStamp> getLineage()
+        {
+            return lineage;
+        }
+
+        Map<String, String> getProperties()
+        {
+            return properties;
+        }
+
+        Map<String, String> getTable()
+        {
+            return table;
+        }
+
+        long getEstimatedBytes()
+        {
+            return estimatedBytes;
+        }
+
+        boolean isSnapshot()
+        {
+            return snapshot;
+        }
+
+        long getCreated()
+        {
+            return created;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.resolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Finds the session properties which can change the model built from a set of poms: the properties used in ${}
+ * expressions, those tested by profile activation and the JVM properties behind jdk and os activation. A table
+ * extracted from the poms is only reused by a session which gives those properties the same values. Profiles activated
+ * by the existence of a file depend on the state of the file system rather than on properties, so the table of poms
+ * with such a profile is not reused at all.
+ */
+class PomProperties
+{
+    private static final Pattern EXPRESSION = Pattern.compile( "\\$\\{([^}]+)\\}" );
+
+    private static final Pattern ACTIVATION_PROPERTY =
+        Pattern.compile( "<property>\\s*<name>\\s*!?\\s*([^<\\s]+)\\s*</name>" );
+
+    private static final Pattern FILE_ACTIVATION = Pattern.compile( "<file>\\s*<(?:exists|missing)>" );
+
+    private static final String[] JDK_PROPERTIES = { "java.version" };
+
+    private static final String[] OS_PROPERTIES = { "os.name", "os.arch", "os.version" };
+
+    private PomProperties()
+    {
+    }
+
+    /**
+     * Read the properties a set of poms depend on
+     *
+     * @param poms The pom files
+     * @param properties The properties of the session
+     * @return The value in the session of each property the poms depend on, null for unset properties, or null if a pom
+     *         has a profile activated by a file
+     * @throws IOException If a pom can't be read
+     */
+    static Map<String, String> read( Collection<File> poms, Properties properties )
+        throws IOException
+    {
+        Map<String, String> values = new TreeMap<String, String>();
+        for ( File pom : poms )
+        {
+            String content = FileUtils.fileRead( pom, "UTF-8" );
+            if ( FILE_ACTIVATION.matcher( content ).find() )
+            {
+                return null;
+            }
+            addMatches( EXPRESSION.matcher( content ), properties, values );
+            addMatches( ACTIVATION_PROPERTY.matcher( content ), properties, values );
+            if ( content.contains( "<jdk>" ) )
+            {
+                addAll( JDK_PROPERTIES, properties, values );
+            }
+            if ( content.contains( "<os>" ) )
+            {
+                addAll( OS_PROPERTIES, properties, values );
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Compare recorded property values with those of the current session
+     *
+     * @param values The recorded values, null for unset properties
+     * @param properties The properties of the session
+     * @return The name of the first property with another value, or null if all are the same
+     */
+    static String findChanged( Map<String, String> values, Properties properties )
+    {
+        for ( Entry<String, String> value : values.entrySet() )
+        {
+            String current = properties.getProperty( value.getKey() );
+            if ( current == null ? value.getValue() != null : !current.equals( value.getValue() ) )
+            {
+                return value.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static void addMatches( Matcher matcher, Properties properties, Map<String, String> values )
+    {
+        while ( matcher.find() )
+        {
+            String name = matcher.group( 1 ).trim();
+            values.put( name, properties.getProperty( name ) );
+        }
+    }
+
+    private static void addAll( String[] names, Properties properties, Map<String, String> values )
+    {
+        for ( String name : names )
+        {
+            values.put( name, properties.getProperty( name ) );
+        }
+    }
+}
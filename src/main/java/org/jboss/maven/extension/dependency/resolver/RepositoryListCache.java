@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.resolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.impl.RemoteRepositoryManager;
+import org.sonatype.aether.repository.RemoteRepository;
+
+/**
+ * Remembers the results of aggregating repository lists, so model resolvers adding the repositories declared in
+ * commonly shared parent poms don't need to repeat the aggregation for every remote pom.
+ */
+public class RepositoryListCache
+{
+    private final RepositorySystemSession session;
+
+    private final RemoteRepositoryManager remoteRepositoryManager;
+
+    private final ConcurrentMap<List<RemoteRepository>, List<RemoteRepository>> aggregated =
+        new ConcurrentHashMap<List<RemoteRepository>, List<RemoteRepository>>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public RepositoryListCache( RepositorySystemSession session, RemoteRepositoryManager remoteRepositoryManager )
+    {
+        this.session = session;
+        this.remoteRepositoryManager = remoteRepositoryManager;
+    }
+
+    /**
+     * Add a repository to a list of repositories, after the existing ones.
+     *
+     * @param dominant The current list of repositories
+     * @param recessive The repository to add
+     * @return The aggregated list, which must not be modified
+     */
+    public List<RemoteRepository> aggregate( List<RemoteRepository> dominant, RemoteRepository recessive )
+    {
+        List<RemoteRepository> key = new ArrayList<RemoteRepository>( dominant.size() + 1 );
+        key.addAll( dominant );
+        key.add( recessive );
+
+        List<RemoteRepository> repositories = aggregated.get( key );
+        if ( repositories != null )
+        {
+            hits.incrementAndGet();
+            return repositories;
+        }
+
+        misses.incrementAndGet();
+        repositories =
+            remoteRepositoryManager.aggregateRepositories( session, dominant, Collections.singletonList( recessive ),
+                                                           true );
+        repositories = Collections.unmodifiableList( repositories );
+        aggregated.putIfAbsent( key, repositories );
+        return repositories;
+    }
+
+    /**
+     * @return Number of aggregations which were found in the cache
+     */
+    public int getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of aggregations which had to be computed
+     */
+    public int getMisses()
+    {
+        return misses.get();
+    }
+}
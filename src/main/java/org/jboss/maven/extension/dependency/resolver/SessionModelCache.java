@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.resolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.model.building.ModelCache;
+
+/**
+ * Model cache shared by all the remote poms built during a session. The model builder uses it for the raw models of
+ * parent poms and for the dependency management of import scoped poms, so common parents and imported boms are only
+ * read once per session.
+ * <p>
+ * Builds which need to know every pom their model was built from use a recorder, see {@link #record(Collection)}.
+ */
+public class SessionModelCache
+    implements ModelCache
+{
+    /**
+     * Tag under which the model builder caches the dependency management of an imported pom
+     */
+    private static final String IMPORT_TAG = "import";
+
+    private final ConcurrentMap<String, Object> entries = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * The poms each cached import was built from besides itself, its parents and nested imports, keyed by GAV
+     */
+    private final ConcurrentMap<String, Set<String>> importedPoms = new ConcurrentHashMap<String, Set<String>>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    @Override
+    public void put( String groupId, String artifactId, String version, String tag, Object data )
+    {
+        entries.put( toKey( groupId, artifactId, version, tag ), data );
+    }
+
+    @Override
+    public Object get( String groupId, String artifactId, String version, String tag )
+    {
+        Object data = entries.get( toKey( groupId, artifactId, version, tag ) );
+        if ( data == null )
+        {
+            misses.incrementAndGet();
+        }
+        else
+        {
+            hits.incrementAndGet();
+        }
+        return data;
+    }
+
+    /**
+     * Get a view of this cache for a single model build which records the GAV of every parent and imported pom the
+     * model is built from. A cached import hides the poms it was built from, so those are remembered when the import
+     * is first built and recorded again on every later hit.
+     *
+     * @param poms Collection to which the GAVs are added
+     * @return The model cache to use for the build, which must not be shared with other threads
+     */
+    public ModelCache record( Collection<String> poms )
+    {
+        return new Recorder( poms );
+    }
+
+    /**
+     * @return Number of lookups which found a cached model
+     */
+    public int getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of lookups which did not find a cached model
+     */
+    public int getMisses()
+    {
+        return misses.get();
+    }
+
+    private static String toKey( String groupId, String artifactId, String version, String tag )
+    {
+        return groupId + ':' + artifactId + ':' + version + ':' + tag;
+    }
+
+    /**
+     * Records the poms looked up by one model build. Imports are built with the same cache while the import lookup is
+     * pending, so everything looked up in between belongs to the pending imports.
+     */
+    private class Recorder
+        implements ModelCache
+    {
+        private final Collection<String> poms;
+
+        private final List<PendingImport> pendingImports = new ArrayList<PendingImport>();
+
+        Recorder( Collection<String> poms )
+        {
+            this.poms = poms;
+        }
+
+        @Override
+        public void put( String groupId, String artifactId, String version, String tag, Object data )
+        {
+            if ( IMPORT_TAG.equals( tag ) )
+            {
+                String gav = groupId + ':' + artifactId + ':' + version;
+                for ( int i = pendingImports.size() - 1; i >= 0; i-- )
+                {
+                    if ( pendingImports.get( i ).gav.equals( gav ) )
+                    {
+                        // Remember the poms before publishing the import, so a hit always finds them
+                        importedPoms.put( gav, pendingImports.get( i ).poms );
+                        pendingImports.subList( i, pendingImports.size() ).clear();
+                        break;
+                    }
+                }
+            }
+            SessionModelCache.this.put( groupId, artifactId, version, tag, data );
+        }
+
+        @Override
+        public Object get( String groupId, String artifactId, String version, String tag )
+        {
+            Object data = SessionModelCache.this.get( groupId, artifactId, version, tag );
+            String gav = groupId + ':' + artifactId + ':' + version;
+            add( gav );
+            if ( IMPORT_TAG.equals( tag ) )
+            {
+                Set<String> hiddenPoms = data == null ? null : importedPoms.get( gav );
+                if ( hiddenPoms != null )
+                {
+                    for ( String pom : hiddenPoms )
+                    {
+                        add( pom );
+                    }
+                }
+                else if ( data == null )
+                {
+                    pendingImports.add( new PendingImport( gav ) );
+                }
+            }
+            return data;
+        }
+
+        private void add( String gav )
+        {
+            poms.add( gav );
+            for ( PendingImport pendingImport : pendingImports )
+            {
+                pendingImport.poms.add( gav );
+            }
+        }
+    }
+
+    private static class PendingImport
+    {
+        private final String gav;
+
+        private final Set<String> poms = new LinkedHashSet<String>();
+
+        PendingImport( String gav )
+        {
+            this.gav = gav;
+        }
+    }
+}
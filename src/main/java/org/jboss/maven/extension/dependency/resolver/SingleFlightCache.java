@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.resolver;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Cache which computes the value of each key at most once. The first caller for a key computes the value in its own
+ * thread, while concurrent callers for the same key wait for that result. Failures are cached the same way as values.
+ *
+ * @param <V> The type of the cached values
+ */
+class SingleFlightCache<V>
+{
+    private final ConcurrentMap<String, FutureTask<V>> results = new ConcurrentHashMap<String, FutureTask<V>>();
+
+    /**
+     * Get the value for a key, computing it if this is the first request for the key.
+     *
+     * @param key The key of the value
+     * @param computation Computes the value if it is not cached yet
+     * @param failureType The checked exception thrown by the computation
+     * @return The cached or newly computed value
+     * @throws E If the computation failed, now or in an earlier call
+     */
+    public <E extends Exception> V get( String key, Callable<V> computation, Class<E> failureType )
+        throws E
+    {
+        FutureTask<V> task = results.get( key );
+        if ( task == null )
+        {
+            FutureTask<V> newTask = new FutureTask<V>( computation );
+            task = results.putIfAbsent( key, newTask );
+            if ( task == null )
+            {
+                task = newTask;
+                task.run();
+            }
+        }
+
+        try
+        {
+            return task.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while waiting for " + key, e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( failureType.isInstance( cause ) )
+            {
+                throw failureType.cast( cause );
+            }
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException( "Unexpected failure computing " + key, cause );
+        }
+    }
+}
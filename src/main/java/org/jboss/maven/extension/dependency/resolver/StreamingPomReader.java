@@ -0,0 +1,391 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.resolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.xml.pull.MXParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Fast path for reading the properties and dependency management of a remote pom without building its effective
+ * model. The pom is stream parsed and only the project coordinates, properties and dependency management are kept.
+ * Only self contained poms can be read this way: a pom with a parent, profiles, imported BOMs, managed dependencies
+ * without a version, duplicate managed dependencies or expressions which can't be resolved needs the full model
+ * builder, and is reported by returning null.
+ */
+class StreamingPomReader
+{
+    private static final String PROJECT = "project";
+
+    private static final String DEPENDENCY_MANAGEMENT = "dependencyManagement";
+
+    private static final String DEPENDENCIES = "dependencies";
+
+    private static final String DEPENDENCY = "dependency";
+
+    private static final String PROPERTIES = "properties";
+
+    private static final String[] PROJECT_FIELDS = { "groupId", "artifactId", "version" };
+
+    private StreamingPomReader()
+    {
+    }
+
+    /**
+     * Read a pom file
+     *
+     * @param pomFile The pom file
+     * @param systemProperties Properties used to resolve expressions which the pom doesn't define itself
+     * @return The properties and dependency management of the pom, or null if the pom needs the full model builder
+     * @throws IOException If the file can't be read
+     */
+    static StreamedPom read( File pomFile, Properties systemProperties )
+        throws IOException
+    {
+        Reader reader = null;
+        try
+        {
+            reader = ReaderFactory.newXmlReader( pomFile );
+            XmlPullParser parser = new MXParser();
+            parser.setInput( reader );
+            return read( parser, systemProperties );
+        }
+        catch ( XmlPullParserException e )
+        {
+            // Let the model builder report the problem
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    private static StreamedPom read( XmlPullParser parser, Properties systemProperties )
+        throws IOException, XmlPullParserException
+    {
+        Map<String, String> project = new HashMap<String, String>();
+        Map<String, String> properties = new LinkedHashMap<String, String>();
+        List<Map<String, String>> managedDependencies = null;
+
+        parser.nextTag();
+        if ( !PROJECT.equals( parser.getName() ) )
+        {
+            return null;
+        }
+
+        while ( parser.nextTag() == XmlPullParser.START_TAG )
+        {
+            String name = parser.getName();
+            if ( "parent".equals( name ) || "profiles".equals( name ) )
+            {
+                return null;
+            }
+            else if ( PROPERTIES.equals( name ) )
+            {
+                while ( parser.nextTag() == XmlPullParser.START_TAG )
+                {
+                    properties.put( parser.getName(), parser.nextText().trim() );
+                }
+            }
+            else if ( DEPENDENCY_MANAGEMENT.equals( name ) )
+            {
+                managedDependencies = new ArrayList<Map<String, String>>();
+                while ( parser.nextTag() == XmlPullParser.START_TAG )
+                {
+                    if ( DEPENDENCIES.equals( parser.getName() ) )
+                    {
+                        while ( parser.nextTag() == XmlPullParser.START_TAG )
+                        {
+                            if ( DEPENDENCY.equals( parser.getName() ) )
+                            {
+                                managedDependencies.add( readFields( parser ) );
+                            }
+                            else
+                            {
+                                skip( parser );
+                            }
+                        }
+                    }
+                    else
+                    {
+                        skip( parser );
+                    }
+                }
+            }
+            else if ( isProjectField( name ) )
+            {
+                project.put( name, parser.nextText().trim() );
+            }
+            else
+            {
+                skip( parser );
+            }
+        }
+
+        Interpolator interpolator = new Interpolator( project, properties, systemProperties );
+
+        Properties effectiveProperties = new Properties();
+        for ( Entry<String, String> property : properties.entrySet() )
+        {
+            String value = interpolator.interpolate( property.getValue() );
+            if ( value == null )
+            {
+                return null;
+            }
+            effectiveProperties.setProperty( property.getKey(), value );
+        }
+
+        Map<String, String> managedVersions = null;
+        if ( managedDependencies != null )
+        {
+            managedVersions = new HashMap<String, String>();
+            Set<String> managementKeys = new HashSet<String>();
+            for ( Map<String, String> dependency : managedDependencies )
+            {
+                if ( "import".equals( dependency.get( "scope" ) ) )
+                {
+                    return null;
+                }
+                String groupId = interpolator.interpolate( dependency.get( "groupId" ) );
+                String artifactId = interpolator.interpolate( dependency.get( "artifactId" ) );
+                String version = interpolator.interpolate( dependency.get( "version" ) );
+                String type = interpolator.interpolate( valueOrDefault( dependency.get( "type" ), "jar" ) );
+                String classifier = interpolator.interpolate( valueOrDefault( dependency.get( "classifier" ), "" ) );
+                if ( groupId == null || artifactId == null || version == null || type == null || classifier == null )
+                {
+                    return null;
+                }
+                // The model validator rejects duplicates, so leave them to it
+                if ( !managementKeys.add( groupId + ":" + artifactId + ":" + type + ":" + classifier ) )
+                {
+                    return null;
+                }
+                managedVersions.put( groupId + ":" + artifactId, version );
+            }
+        }
+
+        return new StreamedPom( effectiveProperties, managedVersions );
+    }
+
+    /**
+     * Read the text of each child element of the current element
+     */
+    private static Map<String, String> readFields( XmlPullParser parser )
+        throws IOException, XmlPullParserException
+    {
+        Map<String, String> fields = new HashMap<String, String>();
+        while ( parser.nextTag() == XmlPullParser.START_TAG )
+        {
+            String name = parser.getName();
+            if ( "exclusions".equals( name ) )
+            {
+                skip( parser );
+            }
+            else
+            {
+                fields.put( name, parser.nextText().trim() );
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Skip the current element and all its content
+     */
+    private static void skip( XmlPullParser parser )
+        throws IOException, XmlPullParserException
+    {
+        int depth = 1;
+        while ( depth > 0 )
+        {
+            int event = parser.next();
+            if ( event == XmlPullParser.START_TAG )
+            {
+                depth++;
+            }
+            else if ( event == XmlPullParser.END_TAG )
+            {
+                depth--;
+            }
+            else if ( event == XmlPullParser.END_DOCUMENT )
+            {
+                throw new XmlPullParserException( "Unexpected end of document", parser, null );
+            }
+        }
+    }
+
+    private static boolean isProjectField( String name )
+    {
+        for ( String field : PROJECT_FIELDS )
+        {
+            if ( field.equals( name ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String valueOrDefault( String value, String defaultValue )
+    {
+        return value == null || value.length() == 0 ? defaultValue : value;
+    }
+
+    /**
+     * Resolves ${} expressions the way the model interpolator does for a pom without a parent: project coordinates
+     * first, then the pom's properties, then the system properties.
+     */
+    private static class Interpolator
+    {
+        private final Map<String, String> project;
+
+        private final Map<String, String> properties;
+
+        private final Properties systemProperties;
+
+        Interpolator( Map<String, String> project, Map<String, String> properties, Properties systemProperties )
+        {
+            this.project = project;
+            this.properties = properties;
+            this.systemProperties = systemProperties;
+        }
+
+        /**
+         * @return The value with all expressions resolved, or null if the value is missing or an expression can't be
+         *         resolved
+         */
+        String interpolate( String value )
+        {
+            return interpolate( value, new HashSet<String>() );
+        }
+
+        private String interpolate( String value, Set<String> resolving )
+        {
+            if ( value == null || value.indexOf( "${" ) < 0 )
+            {
+                return value;
+            }
+
+            StringBuilder result = new StringBuilder( value.length() );
+            int position = 0;
+            while ( true )
+            {
+                int start = value.indexOf( "${", position );
+                if ( start < 0 )
+                {
+                    break;
+                }
+                int end = value.indexOf( '}', start );
+                if ( end < 0 )
+                {
+                    break;
+                }
+                String expression = value.substring( start + 2, end );
+                if ( !resolving.add( expression ) )
+                {
+                    // Recursive expression
+                    return null;
+                }
+                String resolved = interpolate( lookup( expression ), resolving );
+                resolving.remove( expression );
+                if ( resolved == null )
+                {
+                    return null;
+                }
+                result.append( value, position, start ).append( resolved );
+                position = end + 1;
+            }
+            return result.append( value, position, value.length() ).toString();
+        }
+
+        private String lookup( String expression )
+        {
+            for ( String prefix : new String[] { "project.", "pom." } )
+            {
+                if ( expression.startsWith( prefix ) )
+                {
+                    String field = expression.substring( prefix.length() );
+                    if ( isProjectField( field ) )
+                    {
+                        return project.get( field );
+                    }
+                }
+            }
+            if ( properties.containsKey( expression ) )
+            {
+                return properties.get( expression );
+            }
+            if ( systemProperties.getProperty( expression ) != null )
+            {
+                return systemProperties.getProperty( expression );
+            }
+            if ( isProjectField( expression ) )
+            {
+                return project.get( expression );
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The parts of a pom read by the fast path
+     */
+    static class StreamedPom
+    {
+        private final Properties properties;
+
+        private final Map<String, String> managedVersions;
+
+        StreamedPom( Properties properties, Map<String, String> managedVersions )
+        {
+            this.properties = properties;
+            this.managedVersions = managedVersions;
+        }
+
+        /**
+         * @return The interpolated properties of the pom
+         */
+        Properties getProperties()
+        {
+            return properties;
+        }
+
+        /**
+         * @return The versions of the managed dependencies keyed by groupId:artifactId, or null if the pom has no
+         *         dependency management section
+         */
+        Map<String, String> getManagedVersions()
+        {
+            return managedVersions;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.util;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Snapshot of the properties which configure the extension for one session, taken once when the session starts. The
+ * session's user properties take precedence over its system properties. Override properties, whose names are a prefix
+ * up to and including the first ':' followed by a groupId:artifactId, are grouped by prefix in the same pass.
+ * Relative file paths are resolved against the directory in which the session was started, rather than the working
+ * directory of the JVM, which differs from it when Maven runs in a build daemon.
+ */
+public class ExtensionConfiguration
+{
+    private final Properties properties = new Properties();
+
+    private final Map<String, Map<String, String>> propertiesByPrefix = new HashMap<String, Map<String, String>>();
+
+    private final File baseDirectory;
+
+    /**
+     * @param systemProperties The system properties of the session
+     * @param userProperties The user properties of the session, which override the system properties
+     * @param baseDirectory The directory against which relative file paths are resolved, null for the working
+     *            directory of the JVM
+     */
+    public ExtensionConfiguration( Properties systemProperties, Properties userProperties, File baseDirectory )
+    {
+        this.baseDirectory = baseDirectory;
+        putAll( systemProperties );
+        putAll( userProperties );
+
+        for ( String propertyName : properties.stringPropertyNames() )
+        {
+            int separator = propertyName.indexOf( ':' );
+            if ( separator < 0 )
+            {
+                continue;
+            }
+            String prefix = propertyName.substring( 0, separator + 1 );
+            Map<String, String> matchedProperties = propertiesByPrefix.get( prefix );
+            if ( matchedProperties == null )
+            {
+                matchedProperties = new HashMap<String, String>();
+                propertiesByPrefix.put( prefix, matchedProperties );
+            }
+            matchedProperties.put( propertyName.substring( separator + 1 ), properties.getProperty( propertyName ) );
+        }
+    }
+
+    private void putAll( Properties source )
+    {
+        if ( source == null )
+        {
+            return;
+        }
+        for ( String propertyName : source.stringPropertyNames() )
+        {
+            properties.setProperty( propertyName, source.getProperty( propertyName ) );
+        }
+    }
+
+    /**
+     * @return The merged properties. Must not be modified.
+     */
+    public Properties getProperties()
+    {
+        return properties;
+    }
+
+    /**
+     * @param name The name of the property
+     * @return The value of the property, or null if it is not set
+     */
+    public String getProperty( String name )
+    {
+        return properties.getProperty( name );
+    }
+
+    /**
+     * @param name The name of the property
+     * @param defaultValue The value to use if the property is not set
+     * @return The value of the property, or the default value if it is not set
+     */
+    public String getProperty( String name, String defaultValue )
+    {
+        return properties.getProperty( name, defaultValue );
+    }
+
+    /**
+     * @param name The name of the property
+     * @return The file named by the property, resolved against the base directory if relative, or null if the
+     *         property is not set
+     */
+    public File getFileProperty( String name )
+    {
+        String path = properties.getProperty( name );
+        if ( path == null )
+        {
+            return null;
+        }
+        File file = new File( path );
+        return file.isAbsolute() || baseDirectory == null ? file : new File( baseDirectory, path );
+    }
+
+    /**
+     * @param name The name of the property
+     * @param defaultValue The value to use if the property is not set
+     * @return true if the property is "true", ignoring case
+     */
+    public boolean getBooleanProperty( String name, boolean defaultValue )
+    {
+        String value = properties.getProperty( name );
+        return value == null ? defaultValue : Boolean.valueOf( value );
+    }
+
+    /**
+     * Get the properties with names that start with an override prefix. The prefix is trimmed from the names of the
+     * returned properties.
+     *
+     * @param prefix The prefix, ending with ':'
+     * @return The matching properties, empty if there are none. Must not be modified.
+     */
+    public Map<String, String> getPropertiesByPrefix( String prefix )
+    {
+        Map<String, String> matchedProperties = propertiesByPrefix.get( prefix );
+        return matchedProperties == null ? Collections.<String, String> emptyMap() : matchedProperties;
+    }
+}
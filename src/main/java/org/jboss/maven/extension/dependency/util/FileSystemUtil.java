@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.maven.extension.dependency.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Static helpers for the file system features java.io.File lacks. java.nio.file is used through reflection when the JVM
+ * has it, as the extension still runs on Java 6.
+ */
+public class FileSystemUtil
+{
+    /**
+     * File.toPath, Files.createLink and Files.getOwner, or null if this JVM has no java.nio.file
+     */
+    private static final Method TO_PATH;
+
+    private static final Method CREATE_LINK;
+
+    private static final Method GET_OWNER;
+
+    /**
+     * A LinkOption array holding NOFOLLOW_LINKS, or null if this JVM has no java.nio.file
+     */
+    private static final Object NO_FOLLOW_LINKS;
+
+    static
+    {
+        Method toPath = null;
+        Method createLink = null;
+        Method getOwner = null;
+        Object noFollowLinks = null;
+        try
+        {
+            Class<?> pathClass = Class.forName( "java.nio.file.Path" );
+            Class<?> filesClass = Class.forName( "java.nio.file.Files" );
+            Class<?> linkOptionClass = Class.forName( "java.nio.file.LinkOption" );
+            noFollowLinks = Array.newInstance( linkOptionClass, 1 );
+            Array.set( noFollowLinks, 0, linkOptionClass.getField( "NOFOLLOW_LINKS" ).get( null ) );
+            getOwner = filesClass.getMethod( "getOwner", pathClass, noFollowLinks.getClass() );
+            createLink = filesClass.getMethod( "createLink", pathClass, pathClass );
+            toPath = File.class.getMethod( "toPath" );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            toPath = null;
+        }
+        catch ( NoSuchMethodException e )
+        {
+            toPath = null;
+        }
+        catch ( NoSuchFieldException e )
+        {
+            toPath = null;
+        }
+        catch ( IllegalAccessException e )
+        {
+            toPath = null;
+        }
+        TO_PATH = toPath;
+        CREATE_LINK = toPath != null ? createLink : null;
+        GET_OWNER = toPath != null ? getOwner : null;
+        NO_FOLLOW_LINKS = toPath != null ? noFollowLinks : null;
+    }
+
+    /**
+     * Create a hard link to an existing file
+     *
+     * @param link The link to create, which must not exist
+     * @param existing The existing file
+     * @return true if the link was created, false if links aren't supported by the JVM or the file system
+     */
+    public static boolean createLink( File link, File existing )
+    {
+        if ( CREATE_LINK == null )
+        {
+            return false;
+        }
+        try
+        {
+            CREATE_LINK.invoke( null, TO_PATH.invoke( link ), TO_PATH.invoke( existing ) );
+            return true;
+        }
+        catch ( InvocationTargetException e )
+        {
+            Log.getLog().debug( "Couldn't link " + link + " to " + existing + ": " + e.getCause() );
+        }
+        catch ( IllegalAccessException e )
+        {
+            Log.getLog().debug( "Couldn't link " + link + " to " + existing + ": " + e );
+        }
+        return false;
+    }
+
+    /**
+     * Create a directory which only the current user can access, or restrict an existing one. A directory which is a
+     * symbolic link or belongs to another user is not trusted, as another user could add files to it.
+     *
+     * @param dir The directory
+     * @return true if the directory exists, is not a symbolic link, belongs to the current user and could be made
+     *         private
+     */
+    public static boolean createPrivateDirectory( File dir )
+    {
+        dir.mkdirs();
+        if ( !dir.isDirectory() || isSymbolicLink( dir ) )
+        {
+            return false;
+        }
+
+        // Evaluate every call, each one only changes some of the permissions
+        boolean restricted = dir.setReadable( false, false );
+        restricted &= dir.setReadable( true, true );
+        restricted &= dir.setWritable( false, false );
+        restricted &= dir.setWritable( true, true );
+        restricted &= dir.setExecutable( false, false );
+        restricted &= dir.setExecutable( true, true );
+        if ( GET_OWNER == null )
+        {
+            // Only the owner of a directory can change its permissions
+            return restricted;
+        }
+        return isOwnedByCurrentUser( dir );
+    }
+
+    /**
+     * Whether a file is a symbolic link, or is reached through one in place of its own name
+     */
+    private static boolean isSymbolicLink( File file )
+    {
+        try
+        {
+            File parent = file.getAbsoluteFile().getParentFile();
+            File unresolved = new File( parent.getCanonicalFile(), file.getName() );
+            return !unresolved.getCanonicalFile().equals( unresolved );
+        }
+        catch ( IOException e )
+        {
+            return true;
+        }
+    }
+
+    /**
+     * Whether a file has the same owner as a new file created by the current user
+     */
+    private static boolean isOwnedByCurrentUser( File file )
+    {
+        File probe = null;
+        try
+        {
+            probe = File.createTempFile( "mvndepext-", ".owner" );
+            Object owner = GET_OWNER.invoke( null, TO_PATH.invoke( file ), NO_FOLLOW_LINKS );
+            return owner.equals( GET_OWNER.invoke( null, TO_PATH.invoke( probe ), NO_FOLLOW_LINKS ) );
+        }
+        catch ( IOException e )
+        {
+            Log.getLog().debug( "Couldn't check the owner of " + file + ": " + e );
+        }
+        catch ( InvocationTargetException e )
+        {
+            Log.getLog().debug( "Couldn't check the owner of " + file + ": " + e.getCause() );
+        }
+        catch ( IllegalAccessException e )
+        {
+            Log.getLog().debug( "Couldn't check the owner of " + file + ": " + e );
+        }
+        finally
+        {
+            if ( probe != null )
+            {
+                probe.delete();
+            }
+        }
+        return false;
+    }
+}
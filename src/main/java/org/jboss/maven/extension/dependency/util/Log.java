@@ -23,7 +23,7 @@ import org.codehaus.plexus.logging.console.ConsoleLogger;
  */
 public class Log
 {
-    private static Logger logger;
+    private static volatile Logger logger;
 
     /**
      * Yields the central logger object.